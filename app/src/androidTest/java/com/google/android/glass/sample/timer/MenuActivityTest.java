@@ -26,6 +26,8 @@ import android.test.ActivityUnitTestCase;
 import android.test.suitebuilder.annotation.SmallTest;
 import android.view.Window;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -42,6 +44,7 @@ public class MenuActivityTest extends ActivityUnitTestCase<MockMenuActivity> {
     private boolean mUnbindServiceCalled;
     private Intent mActivityIntent;
 
+    private TimerStateProvider mStateProvider;
     private TimerService.TimerBinder mTimerBinder;
 
     public MenuActivityTest() {
@@ -52,7 +55,25 @@ public class MenuActivityTest extends ActivityUnitTestCase<MockMenuActivity> {
     protected void setUp() throws Exception {
         super.setUp();
         mTimer = new Timer(INITIAL_DURATION_MILLIS);
-        mTimerBinder = new TimerService.TimerBinder(mTimer);
+        mStateProvider = new TimerStateProvider() {
+
+            @Override
+            public Timer findTimer(long timerId) {
+                return timerId == mTimer.getId() ? mTimer : null;
+            }
+
+            @Override
+            public TimerSnapshot getSnapshot(long timerId) {
+                return timerId == mTimer.getId() ? mTimer.getSnapshot() : null;
+            }
+
+            @Override
+            public List<TimerSnapshot> getSnapshots() {
+                return Collections.singletonList(mTimer.getSnapshot());
+            }
+        };
+        mTimerBinder = new TimerService.TimerBinder(mStateProvider, mTimer.getId());
+        MockMenuActivity.sStateProvider = null;
 
         // Set a mock context to simulate service binding.
         setActivityContext(new ContextWrapper(getInstrumentation().getTargetContext()) {
@@ -62,7 +83,7 @@ public class MenuActivityTest extends ActivityUnitTestCase<MockMenuActivity> {
                 assertNotNull(service);
                 assertNotNull(conn);
                 assertEquals(TimerService.class.getName(), service.getComponent().getClassName());
-                assertTrue(service.hasExtra(TimerService.EXTRA_TIMER_HASH_CODE));
+                assertTrue(service.hasExtra(TimerService.EXTRA_TIMER_ID));
                 // Bind the mock service with the Activity.
                 conn.onServiceConnected(null, mTimerBinder);
                 mBindServiceCalled = true;
@@ -77,7 +98,7 @@ public class MenuActivityTest extends ActivityUnitTestCase<MockMenuActivity> {
             @Override
             public ComponentName startService(Intent intent) {
                 assertEquals(TimerService.class.getName(), intent.getComponent().getClassName());
-                assertTrue(intent.hasExtra(TimerService.EXTRA_TIMER_HASH_CODE));
+                assertTrue(intent.hasExtra(TimerService.EXTRA_TIMER_ID));
                 assertEquals(TimerService.ACTION_STOP, intent.getAction());
                 mServiceStopped = true;
                 return intent.getComponent();
@@ -85,7 +106,13 @@ public class MenuActivityTest extends ActivityUnitTestCase<MockMenuActivity> {
         });
 
         mActivityIntent = new Intent(getInstrumentation().getTargetContext(), MenuActivity.class);
-        mActivityIntent.putExtra(TimerService.EXTRA_TIMER_HASH_CODE, mTimer.hashCode());
+        mActivityIntent.putExtra(TimerService.EXTRA_TIMER_ID, mTimer.getId());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        MockMenuActivity.sStateProvider = null;
+        super.tearDown();
     }
 
     public void testOnCreateBindsAndUnbindsService() {
@@ -94,6 +121,36 @@ public class MenuActivityTest extends ActivityUnitTestCase<MockMenuActivity> {
         assertTrue(mUnbindServiceCalled);
     }
 
+    public void testOnCreateInProcessSkipsBinding() {
+        MockMenuActivity.sStateProvider = mStateProvider;
+        startActivity(mActivityIntent, null, null);
+        assertFalse(mBindServiceCalled);
+        assertFalse(mUnbindServiceCalled);
+    }
+
+    public void testOnCreateInProcessUnknownTimerBindsService() {
+        MockMenuActivity.sStateProvider = mStateProvider;
+        mActivityIntent.putExtra(TimerService.EXTRA_TIMER_ID, mTimer.getId() + 1);
+        startActivity(mActivityIntent, null, null);
+        assertTrue(mBindServiceCalled);
+        assertTrue(mUnbindServiceCalled);
+    }
+
+    public void testOptionsMenuInProcessStart() {
+        MockMenuActivity.sStateProvider = mStateProvider;
+        assertOptionsMenu(R.id.start, true);
+        assertFalse(mBindServiceCalled);
+        assertTrue(mTimer.isRunning());
+    }
+
+    public void testTimerBinderSnapshots() {
+        mTimer.start();
+        assertSame(mTimer, mTimerBinder.getTimer());
+        assertTrue(mTimerBinder.getSnapshot(mTimer.getId()).isRunning());
+        assertEquals(1, mTimerBinder.getSnapshots().size());
+        assertNull(mTimerBinder.getSnapshot(mTimer.getId() + 1));
+    }
+
     public void testOnActivityResult() {
         MenuActivity activity = startActivity(mActivityIntent, null, null);
         Intent data = new Intent();
@@ -23,6 +23,14 @@ import java.lang.Runnable;
  */
 public class MockMenuActivity extends MenuActivity {
 
+    /** {@link TimerStateProvider} of the in-process service, {@code null} to bind to it. */
+    static TimerStateProvider sStateProvider;
+
+    @Override
+    protected TimerStateProvider getInProcessStateProvider() {
+        return sStateProvider;
+    }
+
     @Override
     protected void post(Runnable runnable) {
         runnable.run();
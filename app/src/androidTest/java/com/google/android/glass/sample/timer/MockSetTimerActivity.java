@@ -18,6 +18,7 @@ package com.google.android.glass.sample.timer;
 
 import android.content.ComponentName;
 import android.content.Intent;
+import android.view.Choreographer.FrameCallback;
 
 import java.util.List;
 import java.util.ArrayList;
@@ -36,6 +37,9 @@ public class MockSetTimerActivity extends SetTimerActivity {
 
     ComponentName mCallingActivity;
 
+    /** {@link FrameCallback} waiting for the next frame, run by {@link #doFrame(long)}. */
+    List<FrameCallback> mFrameCallbacks = new ArrayList<FrameCallback>();
+
     @Override
     protected void setResultInternal(int code, Intent intent) {
         mResultCode = code;
@@ -47,6 +51,35 @@ public class MockSetTimerActivity extends SetTimerActivity {
         mPlayedSoundEffects.add(soundId);
     }
 
+    @Override
+    protected void postFrameCallback(FrameCallback callback) {
+        mFrameCallbacks.add(callback);
+    }
+
+    @Override
+    protected void removeFrameCallback(FrameCallback callback) {
+        while (mFrameCallbacks.remove(callback)) {
+            // Remove all its occurrences, as Choreographer does.
+        }
+    }
+
+    /**
+     * Runs the {@link FrameCallback} pending when called, and returns whether or not there was
+     * any.
+     */
+    boolean doFrame(long frameTimeNanos) {
+        if (mFrameCallbacks.isEmpty()) {
+            return false;
+        }
+        List<FrameCallback> callbacks = mFrameCallbacks;
+
+        mFrameCallbacks = new ArrayList<FrameCallback>();
+        for (FrameCallback callback : callbacks) {
+            callback.doFrame(frameTimeNanos);
+        }
+        return true;
+    }
+
     @Override
     public ComponentName startService(Intent intent) {
         mServiceIntent = intent;
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Unit tests for {@link MotionTraceRecorder}.
+ */
+@SmallTest
+public class MotionTraceRecorderTest extends AndroidTestCase {
+
+    private static final long DOWN_TIME_MILLIS = 5000;
+
+    private MotionTraceRecorder mRecorder;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mRecorder = new MotionTraceRecorder();
+    }
+
+    public void testRecordAndObtainEvent() {
+        record(MotionEvent.ACTION_DOWN, 0, 100);
+        record(MotionEvent.ACTION_MOVE, 16, 150);
+        record(MotionEvent.ACTION_UP, 32, 200);
+
+        MotionTrace trace = mRecorder.getTrace();
+        assertEquals(3, trace.size());
+        assertEquals(32, trace.getDurationMillis());
+
+        MotionEvent event = MotionTraceRecorder.obtainEvent(trace, 1, 1000);
+        assertEquals(MotionEvent.ACTION_MOVE, event.getAction());
+        assertEquals(InputDevice.SOURCE_TOUCHPAD, event.getSource());
+        assertEquals(1000, event.getDownTime());
+        assertEquals(1016, event.getEventTime());
+        assertEquals(1, event.getPointerCount());
+        assertEquals(150f, event.getX());
+        assertEquals(50f, event.getY());
+        event.recycle();
+    }
+
+    public void testSave() throws IOException {
+        File file = new File(getContext().getCacheDir(), "test.trace");
+
+        record(MotionEvent.ACTION_DOWN, 0, 100);
+        record(MotionEvent.ACTION_UP, 20, 300);
+        mRecorder.save(file);
+        assertEquals(0, mRecorder.getTrace().size());
+
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            MotionTrace trace = MotionTrace.readFrom(in);
+
+            assertEquals(2, trace.size());
+            assertEquals(MotionEvent.ACTION_UP, trace.getAction(1));
+            assertEquals(20, trace.getEventTimeMillis(1));
+            assertEquals(300f, trace.getX(1, 0));
+        } finally {
+            in.close();
+            file.delete();
+        }
+    }
+
+    private void record(int action, long elapsedMillis, float x) {
+        MotionEvent event = MotionEvent.obtain(DOWN_TIME_MILLIS, DOWN_TIME_MILLIS + elapsedMillis,
+                action, x, 50, 0);
+
+        event.setSource(InputDevice.SOURCE_TOUCHPAD);
+        mRecorder.record(event);
+        event.recycle();
+    }
+}
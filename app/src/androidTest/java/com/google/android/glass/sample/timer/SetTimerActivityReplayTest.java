@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.test.ActivityInstrumentationTestCase2;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark replaying touchpad gestures into {@link SetTimerActivity} at their original timing,
+ * reporting the handling time of every event, the time value of every frame and the dropped
+ * frames.
+ * <p>
+ * Replays synthetic swipes, and the {@link MotionTrace} recorded on the device with
+ * {@code config_record_gestures} into {@link SetTimerActivity#GESTURE_TRACE_DIRECTORY}. Each trace
+ * is replayed twice from the same initial time into a new activity and must settle both times on
+ * the same time, while handling its events and drawing its frames within the bounds below.
+ */
+@LargeTest
+public class SetTimerActivityReplayTest extends ActivityInstrumentationTestCase2<SetTimerActivity> {
+
+    private static final String TAG = SetTimerActivityReplayTest.class.getSimpleName();
+
+    /** Delay before replaying the first event, for the setup posts to be ahead of it. */
+    private static final long START_DELAY_MILLIS = 100;
+    /** Delay after the last event during which the frames are still recorded, e.g. to fling. */
+    private static final long SETTLE_MILLIS = TimeUnit.SECONDS.toMillis(3);
+    /** Interval between two reported touchpad events. */
+    private static final long EVENT_INTERVAL_MILLIS = 10;
+    private static final float TOUCHPAD_Y = 90;
+    /** Initial time of 12 hours, leaving room to swipe both ways without reaching the bounds. */
+    private static final long INITIAL_DURATION_MILLIS = TimeUnit.HOURS.toMillis(12);
+    private static final float INITIAL_TIME_SECONDS =
+            TimeUnit.MILLISECONDS.toSeconds(INITIAL_DURATION_MILLIS);
+    /** Percentile of the event handling times which must fit in a display frame. */
+    private static final int HANDLING_PERCENTILE = 99;
+    /** Maximum percentage of dropped frames during a replay. */
+    private static final int MAX_DROPPED_FRAMES_PERCENT = 5;
+
+    /** Frame time and time value of each frame drawn during a replay. */
+    private static class FrameRecorder implements Choreographer.FrameCallback {
+        private final SetTimerActivity mActivity;
+        private final long[] mFrameTimesNanos;
+        private final float[] mTimeSeconds;
+        private int mCount;
+        private boolean mStopped;
+
+        FrameRecorder(SetTimerActivity activity, int capacity) {
+            mActivity = activity;
+            mFrameTimesNanos = new long[capacity];
+            mTimeSeconds = new float[capacity];
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mStopped || mCount == mFrameTimesNanos.length) {
+                return;
+            }
+            mFrameTimesNanos[mCount] = frameTimeNanos;
+            mTimeSeconds[mCount] = mActivity.getTimeSeconds();
+            ++mCount;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    public SetTimerActivityReplayTest() {
+        super(SetTimerActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Intent intent = new Intent(getInstrumentation().getTargetContext(), SetTimerActivity.class);
+
+        intent.putExtra(SetTimerActivity.EXTRA_DURATION_MILLIS, INITIAL_DURATION_MILLIS);
+        setActivityIntent(intent);
+    }
+
+    public void testReplaySwipes() throws InterruptedException {
+        assertTrue(replayTwice("slow_forward", newSwipe(500, 600, 1)) > INITIAL_TIME_SECONDS);
+        assertTrue(replayTwice("slow_backward", newSwipe(500, -600, 1)) < INITIAL_TIME_SECONDS);
+        assertTrue(replayTwice("fast_fling", newSwipe(150, 900, 1)) > INITIAL_TIME_SECONDS);
+        assertTrue(
+                replayTwice("repeated_flings", newSwipe(100, 800, 5)) > INITIAL_TIME_SECONDS);
+    }
+
+    public void testReplayRecordedTraces() throws IOException, InterruptedException {
+        File[] files = new File(getActivity().getFilesDir(),
+                SetTimerActivity.GESTURE_TRACE_DIRECTORY).listFiles();
+
+        if (files == null) {
+            Log.i(TAG, "No recorded motion trace");
+            return;
+        }
+        for (File file : files) {
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+
+            try {
+                replayTwice(file.getName(), MotionTrace.readFrom(in));
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Replays the trace twice, each time into a new activity starting from
+     * {@link #INITIAL_TIME_SECONDS}, asserting that both replays settle on the same time, and
+     * returns that time in seconds.
+     */
+    private float replayTwice(String name, MotionTrace trace) throws InterruptedException {
+        float timeSeconds = replay(name, trace);
+
+        assertEquals(name, timeSeconds, replay(name + " again", trace));
+        return timeSeconds;
+    }
+
+    /**
+     * Replays the trace on the main thread at its original timing into a new activity, reports
+     * the measures in the log and asserts their bounds, and returns the time in seconds once
+     * settled.
+     */
+    private float replay(String name, MotionTrace trace) throws InterruptedException {
+        final SetTimerActivity activity = getActivity();
+        final float[] timeSeconds = new float[1];
+        final int size = trace.size();
+        final long[] handlingNanos = new long[size];
+        final CountDownLatch done = new CountDownLatch(1);
+        long frameNanos = (long) (TimeUnit.SECONDS.toNanos(1)
+                / activity.getWindowManager().getDefaultDisplay().getRefreshRate());
+        long replayMillis = trace.getDurationMillis() + SETTLE_MILLIS;
+        final FrameRecorder frames = new FrameRecorder(activity,
+                (int) (2 * TimeUnit.MILLISECONDS.toNanos(replayMillis) / frameNanos) + 1);
+        Handler handler = new Handler(Looper.getMainLooper());
+        long baseUptimeMillis = SystemClock.uptimeMillis() + START_DELAY_MILLIS;
+
+        handler.postAtTime(new Runnable() {
+
+            @Override
+            public void run() {
+                Choreographer.getInstance().postFrameCallback(frames);
+            }
+        }, baseUptimeMillis);
+        for (int i = 0; i < size; ++i) {
+            final int index = i;
+            final MotionEvent event = MotionTraceRecorder.obtainEvent(trace, i, baseUptimeMillis);
+
+            handler.postAtTime(new Runnable() {
+
+                @Override
+                public void run() {
+                    long startNanos = System.nanoTime();
+
+                    activity.onGenericMotionEvent(event);
+                    handlingNanos[index] = System.nanoTime() - startNanos;
+                    event.recycle();
+                }
+            }, event.getEventTime());
+        }
+        handler.postAtTime(new Runnable() {
+
+            @Override
+            public void run() {
+                frames.mStopped = true;
+                timeSeconds[0] = activity.getTimeSeconds();
+                done.countDown();
+            }
+        }, baseUptimeMillis + replayMillis);
+        assertTrue(done.await(START_DELAY_MILLIS + 2 * replayMillis, TimeUnit.MILLISECONDS));
+        assertTrue(frames.mCount > 0);
+        // The next replay starts from the initial time again, in a new activity.
+        activity.finish();
+        setActivity(null);
+        report(name, trace, handlingNanos, frames, frameNanos);
+        return timeSeconds[0];
+    }
+
+    /** Reports the measures of a replay in the log and asserts their bounds. */
+    private static void report(String name, MotionTrace trace, long[] handlingNanos,
+            FrameRecorder frames, long frameNanos) {
+        LatencyHistogram histogram = new LatencyHistogram(name + " event_handling");
+        StringWriter summary = new StringWriter();
+        int droppedFrames = 0;
+
+        for (int i = 0; i < handlingNanos.length; ++i) {
+            histogram.record(handlingNanos[i]);
+            Log.v(TAG, name + " event " + i + " +" + trace.getEventTimeMillis(i) + "ms action="
+                    + trace.getAction(i) + ": " + TimeUnit.NANOSECONDS.toMicros(handlingNanos[i])
+                    + "us");
+        }
+        for (int i = 0; i < frames.mCount; ++i) {
+            long elapsedNanos = frames.mFrameTimesNanos[i] - frames.mFrameTimesNanos[0];
+
+            if (i > 0) {
+                long gapNanos = frames.mFrameTimesNanos[i] - frames.mFrameTimesNanos[i - 1];
+
+                // Frames whose vsync passed without a frame being drawn.
+                droppedFrames += Math.max(0, Math.round((double) gapNanos / frameNanos) - 1);
+            }
+            Log.v(TAG, name + " frame " + i + " +" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+                    + "ms: " + frames.mTimeSeconds[i] + "s");
+        }
+        histogram.dump(new PrintWriter(summary, true), "");
+        Log.i(TAG, summary.toString().trim());
+        Log.i(TAG, name + ": " + handlingNanos.length + " events, " + frames.mCount + " frames, "
+                + droppedFrames + " dropped frames, final time "
+                + frames.mTimeSeconds[frames.mCount - 1] + "s");
+        assertTrue(name + " event handling p" + HANDLING_PERCENTILE + " over a frame",
+                histogram.getPercentileNanos(HANDLING_PERCENTILE) <= frameNanos);
+        assertTrue(name + " dropped " + droppedFrames + " of " + frames.mCount + " frames",
+                droppedFrames * 100 <= frames.mCount * MAX_DROPPED_FRAMES_PERCENT);
+    }
+
+    /**
+     * Returns {@code count} swipes of {@code distance} touchpad pixels lasting
+     * {@code durationMillis} each, reported every {@link #EVENT_INTERVAL_MILLIS}.
+     */
+    private static MotionTrace newSwipe(long durationMillis, float distance, int count) {
+        MotionTrace trace = new MotionTrace();
+        int[] pointerIds = { 0 };
+        float[] xs = new float[1];
+        float[] ys = { TOUCHPAD_Y };
+        long timeMillis = 0;
+        float startX = distance > 0 ? 100 : 100 - distance;
+
+        for (int i = 0; i < count; ++i) {
+            long downTimeMillis = timeMillis;
+
+            xs[0] = startX;
+            trace.add(timeMillis, downTimeMillis, MotionEvent.ACTION_DOWN,
+                    InputDevice.SOURCE_TOUCHPAD, 1, pointerIds, xs, ys);
+            for (long t = EVENT_INTERVAL_MILLIS; t <= durationMillis; t += EVENT_INTERVAL_MILLIS) {
+                xs[0] = startX + distance * t / durationMillis;
+                trace.add(timeMillis + t, downTimeMillis, MotionEvent.ACTION_MOVE,
+                        InputDevice.SOURCE_TOUCHPAD, 1, pointerIds, xs, ys);
+            }
+            timeMillis += durationMillis;
+            trace.add(timeMillis, downTimeMillis, MotionEvent.ACTION_UP,
+                    InputDevice.SOURCE_TOUCHPAD, 1, pointerIds, xs, ys);
+            // Pause between two swipes.
+            timeMillis += 4 * durationMillis;
+        }
+        return trace;
+    }
+}
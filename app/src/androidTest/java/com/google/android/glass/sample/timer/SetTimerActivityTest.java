@@ -150,7 +150,53 @@ public class SetTimerActivityTest extends ActivityUnitTestCase<MockSetTimerActiv
         float seconds = 60;
 
         activity.onScroll(seconds, seconds, 1);
+        // Applied at the next frame.
+        assertEquals(0f, activity.getTimeSeconds());
+        assertTrue(activity.doFrame(System.nanoTime()));
         assertEquals(seconds, activity.getTimeSeconds());
+        assertEquals(1, activity.mPlayedSoundEffects.size());
+        assertEquals(Sounds.TAP, activity.mPlayedSoundEffects.get(0).intValue());
+    }
+
+    public void testOnScrollCoalescedPerFrame() {
+        mActivityIntent.removeExtra(SetTimerActivity.EXTRA_DURATION_MILLIS);
+        MockSetTimerActivity activity = startActivity(mActivityIntent, null, null);
+        float seconds = 60;
+
+        for (int i = 0; i < 5; ++i) {
+            activity.onScroll(seconds * (i + 1), seconds, 1);
+        }
+        assertEquals(1, activity.mFrameCallbacks.size());
+        assertTrue(activity.doFrame(System.nanoTime()));
+        assertEquals(5 * seconds, activity.getTimeSeconds());
+        assertEquals(1, activity.mPlayedSoundEffects.size());
+        assertFalse(activity.doFrame(System.nanoTime()));
+    }
+
+    public void testOnScrollTapSoundsRateLimited() {
+        mActivityIntent.removeExtra(SetTimerActivity.EXTRA_DURATION_MILLIS);
+        MockSetTimerActivity activity = startActivity(mActivityIntent, null, null);
+        long frameTimeNanos = System.nanoTime();
+        float seconds = 60;
+
+        // A minute per 16ms frame, only the 1st and 5th frames being 50ms apart.
+        for (int i = 0; i < 5; ++i) {
+            activity.onScroll(seconds * (i + 1), seconds, 1);
+            activity.doFrame(frameTimeNanos + i * TimeUnit.MILLISECONDS.toNanos(16));
+        }
+        assertEquals(5 * seconds, activity.getTimeSeconds());
+        assertEquals(2, activity.mPlayedSoundEffects.size());
+    }
+
+    public void testOnGestureTapAppliesPendingScroll() {
+        mActivityIntent.removeExtra(SetTimerActivity.EXTRA_DURATION_MILLIS);
+        MockSetTimerActivity activity = startActivity(mActivityIntent, null, null);
+
+        activity.onScroll(60, 60, 1);
+        assertTrue(activity.onGesture(Gesture.TAP));
+        assertEquals(60f, activity.getTimeSeconds());
+        assertTrue(activity.mOptionsMenuOpen);
+        assertTrue(activity.mFrameCallbacks.isEmpty());
     }
 
     public void testOnFingerCountChangedNoFling() {
@@ -172,7 +218,40 @@ public class SetTimerActivityTest extends ActivityUnitTestCase<MockSetTimerActiv
         assertEquals(0f, activity.getTimeSeconds());
         activity.onFingerCountChanged(1, 0);
         activity.forceEndAnimation();
-        assertEquals(1000f, activity.getTimeSeconds());
+        // The 1000 seconds travelled are extended to the next whole minute.
+        assertEquals(1020f, activity.getTimeSeconds());
+        assertTrue(activity.mFrameCallbacks.isEmpty());
+    }
+
+    public void testOnFingerCountChangedFlingFrames() {
+        mActivityIntent.removeExtra(SetTimerActivity.EXTRA_DURATION_MILLIS);
+        MockSetTimerActivity activity = startActivity(mActivityIntent, null, null);
+        long frameTimeNanos = System.nanoTime();
+        float previousTimeSeconds = 0;
+        int frames = 0;
+
+        activity.onScroll(0, 0, 20);
+        activity.onFingerCountChanged(1, 0);
+        while (activity.doFrame(frameTimeNanos += TimeUnit.MILLISECONDS.toNanos(16))) {
+            assertTrue(activity.getTimeSeconds() >= previousTimeSeconds);
+            previousTimeSeconds = activity.getTimeSeconds();
+            ++frames;
+        }
+        assertTrue(frames > 1);
+        assertEquals(1020f, activity.getTimeSeconds());
+    }
+
+    public void testOnFingerCountChangedFingerDownCancelsFling() {
+        mActivityIntent.removeExtra(SetTimerActivity.EXTRA_DURATION_MILLIS);
+        MockSetTimerActivity activity = startActivity(mActivityIntent, null, null);
+
+        activity.onScroll(0, 0, 20);
+        activity.onFingerCountChanged(1, 0);
+        assertEquals(1, activity.mFrameCallbacks.size());
+        activity.onFingerCountChanged(0, 1);
+        assertTrue(activity.mFrameCallbacks.isEmpty());
+        activity.forceEndAnimation();
+        assertEquals(0f, activity.getTimeSeconds());
     }
 
 }
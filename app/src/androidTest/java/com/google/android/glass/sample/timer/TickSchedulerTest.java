@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link TickScheduler}.
+ */
+@SmallTest
+public class TickSchedulerTest extends AndroidTestCase {
+
+    private static final long INITIAL_UPTIME_MILLIS = 10000;
+    private static final long SECOND_MILLIS = 1000;
+
+    private TickScheduler mScheduler;
+
+    private long mUptimeMillis;
+    private int mPostCount;
+    private long mPostedUptimeMillis;
+    private Runnable mPostedCallback;
+    private Runnable mRemovedCallback;
+
+    private MockTickListener mListener1;
+    private MockTickListener mListener2;
+
+    /** {@link TickScheduler.TickListener} ticking on every second from an absolute origin. */
+    private class MockTickListener implements TickScheduler.TickListener {
+        private final long mOriginUptimeMillis;
+        private int mTickCount;
+
+        MockTickListener(long originUptimeMillis) {
+            mOriginUptimeMillis = originUptimeMillis;
+        }
+
+        @Override
+        public void onTick() {
+            ++mTickCount;
+        }
+
+        @Override
+        public long getNextTickDelayMillis() {
+            long sinceOriginMillis = mUptimeMillis - mOriginUptimeMillis;
+
+            return SECOND_MILLIS - (sinceOriginMillis % SECOND_MILLIS + SECOND_MILLIS)
+                    % SECOND_MILLIS;
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mScheduler = new TickScheduler() {
+
+            @Override
+            protected void postAtTime(Runnable runnable, long uptimeMillis) {
+                ++mPostCount;
+                mPostedCallback = runnable;
+                mPostedUptimeMillis = uptimeMillis;
+            }
+
+            @Override
+            protected void removeCallbacks(Runnable runnable) {
+                mRemovedCallback = runnable;
+            }
+
+            @Override
+            protected long uptimeMillis() {
+                return mUptimeMillis;
+            }
+        };
+        mUptimeMillis = INITIAL_UPTIME_MILLIS;
+        mPostCount = 0;
+        mPostedUptimeMillis = 0;
+        mPostedCallback = null;
+        mRemovedCallback = null;
+        // First ticks in 300ms and 700ms.
+        mListener1 = new MockTickListener(INITIAL_UPTIME_MILLIS + 300);
+        mListener2 = new MockTickListener(INITIAL_UPTIME_MILLIS + 700);
+    }
+
+    public void testSubscriptionSchedulesFirstTick() {
+        mScheduler.subscribe(mListener1);
+        assertEquals(1, mPostCount);
+        assertEquals(INITIAL_UPTIME_MILLIS + 300, mPostedUptimeMillis);
+        assertTrue(mScheduler.isSubscribed(mListener1));
+    }
+
+    public void testAlignedListenersShareWakeups() {
+        MockTickListener aligned = new MockTickListener(INITIAL_UPTIME_MILLIS + 300);
+
+        mScheduler.subscribe(mListener1);
+        mScheduler.subscribe(aligned);
+        assertEquals(1, mPostCount);
+
+        mUptimeMillis += 300;
+        mPostedCallback.run();
+        assertEquals(1, mListener1.mTickCount);
+        assertEquals(1, aligned.mTickCount);
+        assertEquals(2, mPostCount);
+        assertEquals(INITIAL_UPTIME_MILLIS + 300 + SECOND_MILLIS, mPostedUptimeMillis);
+    }
+
+    public void testEachListenerTicksOnItsOwnBoundary() {
+        mScheduler.subscribe(mListener2);
+        mScheduler.subscribe(mListener1);
+        assertEquals(INITIAL_UPTIME_MILLIS + 300, mPostedUptimeMillis);
+
+        mUptimeMillis += 300;
+        mPostedCallback.run();
+        assertEquals(1, mListener1.mTickCount);
+        assertEquals(0, mListener2.mTickCount);
+        assertEquals(INITIAL_UPTIME_MILLIS + 700, mPostedUptimeMillis);
+
+        mUptimeMillis += 400;
+        mPostedCallback.run();
+        assertEquals(1, mListener1.mTickCount);
+        assertEquals(1, mListener2.mTickCount);
+        assertEquals(INITIAL_UPTIME_MILLIS + 300 + SECOND_MILLIS, mPostedUptimeMillis);
+    }
+
+    public void testLateTickDoesNotDrift() {
+        mScheduler.subscribe(mListener1);
+        // Simulate a busy main thread: the next tick must not be delayed accordingly.
+        for (int i = 0; i < 10; ++i) {
+            mUptimeMillis = mPostedUptimeMillis + 150;
+            mPostedCallback.run();
+            assertEquals(INITIAL_UPTIME_MILLIS + 300 + (i + 1) * SECOND_MILLIS,
+                    mPostedUptimeMillis);
+        }
+        assertEquals(10, mListener1.mTickCount);
+    }
+
+    public void testTickLatenessRecorded() {
+        TimerMetrics.reset();
+        mScheduler.subscribe(mListener1);
+        mUptimeMillis += 300 + 150;
+        mPostedCallback.run();
+
+        LatencyHistogram lateness = TimerMetrics.TICK_LATENESS;
+        assertEquals(1, lateness.getCount());
+        assertEquals(1, lateness.getBucketCount(
+                LatencyHistogram.getBucket(TimeUnit.MILLISECONDS.toNanos(150))));
+    }
+
+    public void testUnsubscribeLastListenerStopsTicks() {
+        mScheduler.subscribe(mListener1);
+        mScheduler.subscribe(mListener2);
+        mScheduler.unsubscribe(mListener2);
+        assertNull(mRemovedCallback);
+        mScheduler.unsubscribe(mListener1);
+        assertNotNull(mRemovedCallback);
+        assertEquals(mPostedCallback, mRemovedCallback);
+        assertFalse(mScheduler.isSubscribed(mListener1));
+    }
+
+    public void testUnsubscribeWhileDispatching() {
+        mScheduler.subscribe(new MockTickListener(INITIAL_UPTIME_MILLIS + 300) {
+
+            @Override
+            public void onTick() {
+                mScheduler.unsubscribe(this);
+                mScheduler.unsubscribe(mListener1);
+            }
+        });
+        mScheduler.subscribe(mListener1);
+        mUptimeMillis += 300;
+        mScheduler.dispatchDueTicks();
+        assertEquals(0, mListener1.mTickCount);
+        assertFalse(mScheduler.isSubscribed(mListener1));
+    }
+
+    public void testNoMoreTicks() {
+        mScheduler.subscribe(new MockTickListener(INITIAL_UPTIME_MILLIS) {
+
+            @Override
+            public long getNextTickDelayMillis() {
+                return Long.MAX_VALUE;
+            }
+        });
+        assertEquals(0, mPostCount);
+    }
+}
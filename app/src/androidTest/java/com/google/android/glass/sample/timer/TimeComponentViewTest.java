@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Unit tests for {@link TimeComponentView}.
+ */
+@SmallTest
+public class TimeComponentViewTest extends AndroidTestCase {
+
+    private static final int SIZE = 150;
+
+    private TimeComponentView mView;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mView = new TimeComponentView(getContext());
+        mView.setLayoutParams(new ViewGroup.LayoutParams(SIZE, SIZE));
+        mView.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        mView.layout(0, 0, SIZE, SIZE);
+    }
+
+    public void testSetDigitsDoesNotRequestLayout() {
+        char[] digits = { '1', '2', '3' };
+
+        mView.setDigits(digits, 2);
+        assertFalse(mView.isLayoutRequested());
+        assertEquals("12", mView.getText().toString());
+        mView.setDigits(digits, 3);
+        assertFalse(mView.isLayoutRequested());
+        assertEquals("123", mView.getText().toString());
+    }
+
+    public void testOtherChangesStillRequestLayout() {
+        mView.setTextSize(mView.getTextSize() * 2);
+        assertTrue(mView.isLayoutRequested());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.view.View;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation tests for {@link TimeFormatter} and the ticks of {@link TimerView}, which need the
+ * allocation counts of {@link Debug}. The formatting itself is tested in the engine.
+ */
+@SmallTest
+public class TimeFormatterAllocationTest extends AndroidTestCase {
+
+    private static final int SURFACE_WIDTH = 640;
+    private static final int SURFACE_HEIGHT = 360;
+
+    private final char[] mBuffer = new char[TimeFormatter.BUFFER_SIZE];
+    private long mNowMillis;
+
+    @SuppressWarnings("deprecation")
+    public void testFormatTicksDoesNotAllocate() {
+        // Warm up so that any lazy class initialization is not counted.
+        formatOneDayOfTicks();
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        formatOneDayOfTicks();
+        Debug.stopAllocCounting();
+        assertEquals(0, Debug.getThreadAllocCount());
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testTimerViewTicksDoNotAllocate() {
+        Timer timer = new Timer(new Clock() {
+
+            @Override
+            public long nanoTime() {
+                return TimeUnit.MILLISECONDS.toNanos(mNowMillis);
+            }
+        }, TimeUnit.DAYS.toMillis(3));
+        TimerView view = new TimerView(getContext());
+
+        // Hidden so that the test drives the ticks instead of the TickScheduler.
+        view.setHidden(true);
+        timer.start();
+        view.setTimer(timer);
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(SURFACE_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SURFACE_HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, SURFACE_WIDTH, SURFACE_HEIGHT);
+        try {
+            // Warm up so that any lazy initialization of the views is not counted.
+            tickOneDay(view);
+
+            Debug.resetThreadAllocCount();
+            Debug.startAllocCounting();
+            tickOneDay(view);
+            Debug.stopAllocCounting();
+            assertEquals(0, Debug.getThreadAllocCount());
+        } finally {
+            view.release();
+        }
+    }
+
+    /** Updates the text of the view for every second of a day, as its ticks do. */
+    private void tickOneDay(TimerView view) {
+        for (long i = TimeUnit.DAYS.toSeconds(1); i > 0; --i) {
+            mNowMillis += TimeUnit.SECONDS.toMillis(1);
+            view.updateText();
+            view.clearDirty();
+        }
+    }
+
+    /** Formats the components of every second of a day, as done by {@link TimerView}. */
+    private void formatOneDayOfTicks() {
+        for (long timeMillis = TimeUnit.DAYS.toMillis(1); timeMillis >= 0;
+                timeMillis -= TimeUnit.SECONDS.toMillis(1)) {
+            long remainingMillis = timeMillis;
+
+            TimeFormatter.formatTwoDigits(TimeUnit.MILLISECONDS.toHours(remainingMillis), mBuffer);
+            remainingMillis %= TimeUnit.HOURS.toMillis(1);
+            TimeFormatter.formatTwoDigits(
+                    TimeUnit.MILLISECONDS.toMinutes(remainingMillis), mBuffer);
+            remainingMillis %= TimeUnit.MINUTES.toMillis(1);
+            TimeFormatter.formatTwoDigits(
+                    TimeUnit.MILLISECONDS.toSeconds(remainingMillis), mBuffer);
+        }
+    }
+}
@@ -16,26 +16,45 @@
 
 package com.google.android.glass.sample.timer;
 
+import com.google.android.glass.timeline.LiveCard.PublishMode;
+
 import android.test.AndroidTestCase;
 
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Rect;
+import android.util.Log;
 import android.view.SurfaceHolder;
 import android.view.Surface;
+import android.view.View;
+import android.test.suitebuilder.annotation.LargeTest;
 import android.test.suitebuilder.annotation.SmallTest;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Unit tests for {@link TimerDrawer}.
  */
 @SmallTest
 public class TimerDrawerTest extends AndroidTestCase {
 
+    private static final String TAG = TimerDrawerTest.class.getSimpleName();
+
+    private static final int SURFACE_WIDTH = 640;
+    private static final int SURFACE_HEIGHT = 360;
+    private static final int BENCHMARK_FRAMES = 200;
+
     private TimerDrawer mDrawer;
     private TimerView mView;
 
     private int mCanvasLockedCount;
     private int mCanvasUnlockedCount;
     private int mDrawCount;
+    private int mMeasureCount;
+    private int mLayoutCount;
+    private Rect mLockedRect;
 
     /** Simple {@link SurfaceHolder} implementation for testing. */
     private final SurfaceHolder mHolder = new SurfaceHolder() {
@@ -69,6 +88,7 @@ public class TimerDrawerTest extends AndroidTestCase {
 
         @Override
         public Canvas lockCanvas(Rect rect) {
+            mLockedRect = new Rect(rect);
             return lockCanvas();
         }
 
@@ -109,6 +129,22 @@ public class TimerDrawerTest extends AndroidTestCase {
         }
     };
 
+    /** {@link TimerRenderThread} running the posted frames on demand. */
+    private static class MockRenderThread extends TimerRenderThread {
+        final List<Runnable> mPosted = new ArrayList<Runnable>();
+
+        @Override
+        protected void post(Runnable frame) {
+            mPosted.add(frame);
+        }
+
+        void runPosted() {
+            while (!mPosted.isEmpty()) {
+                mPosted.remove(0).run();
+            }
+        }
+    }
+
     @Override
     protected void setUp() throws Exception {
         super.setUp();
@@ -118,12 +154,27 @@ public class TimerDrawerTest extends AndroidTestCase {
             public void draw(Canvas canvas) {
                 ++mDrawCount;
             }
+
+            @Override
+            protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+                ++mMeasureCount;
+                super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            }
+
+            @Override
+            protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+                ++mLayoutCount;
+                super.onLayout(changed, left, top, right, bottom);
+            }
         };
         mDrawer = new TimerDrawer(mView);
 
         mCanvasLockedCount = 0;
         mCanvasUnlockedCount = 0;
         mDrawCount = 0;
+        mMeasureCount = 0;
+        mLayoutCount = 0;
+        mLockedRect = null;
     }
 
     public void testConstructorSetsListener() {
@@ -180,6 +231,82 @@ public class TimerDrawerTest extends AndroidTestCase {
         assertEquals(1, mDrawCount);
     }
 
+    public void testRenderingPausedHidesView() {
+        mDrawer.surfaceCreated(mHolder);
+        assertFalse(mView.isHidden());
+        mDrawer.renderingPaused(mHolder, true);
+        assertTrue(mView.isHidden());
+        mDrawer.renderingPaused(mHolder, false);
+        assertFalse(mView.isHidden());
+    }
+
+    public void testSurfaceDestroyedHidesView() {
+        mDrawer.surfaceCreated(mHolder);
+        mDrawer.surfaceDestroyed(mHolder);
+        assertTrue(mView.isHidden());
+    }
+
+    public void testViewInflatedOnlyWhileSurfaceExists() {
+        int initialSoundCount = TimerSoundPool.getReferenceCount();
+        TimerDrawer drawer = new TimerDrawer(getContext(), new Timer(), new TickScheduler());
+
+        assertNull(drawer.getView());
+        drawer.surfaceCreated(mHolder);
+        assertNotNull(drawer.getView());
+        assertEquals(initialSoundCount + 1, TimerSoundPool.getReferenceCount());
+        drawer.surfaceDestroyed(mHolder);
+        assertNull(drawer.getView());
+        assertEquals(initialSoundCount, TimerSoundPool.getReferenceCount());
+        drawer.release();
+    }
+
+    public void testInflatedViewFollowsTimer() {
+        Timer timer = new Timer(TimeUnit.MINUTES.toMillis(5));
+        TimerDrawer drawer = new TimerDrawer(getContext(), timer, new TickScheduler());
+
+        timer.start();
+        drawer.surfaceCreated(mHolder);
+        assertSame(timer, drawer.getView().getTimer());
+        assertSame(timer, drawer.getTimer());
+        drawer.surfaceDestroyed(mHolder);
+        assertSame(timer, drawer.getTimer());
+        drawer.release();
+    }
+
+    public void testInflatedViewSharesTickScheduler() {
+        TickScheduler tickScheduler = new TickScheduler();
+        TimerDrawer drawer = new TimerDrawer(getContext(), new Timer(), tickScheduler);
+
+        drawer.surfaceCreated(mHolder);
+        assertSame(tickScheduler, drawer.getView().getTickScheduler());
+        drawer.release();
+    }
+
+    public void testRevealedCardWaitsForSurface() {
+        Timer timer = new Timer(TimeUnit.MINUTES.toMillis(5));
+        TimerDrawer drawer = new TimerDrawer(getContext(), timer, new TickScheduler());
+
+        drawer.onPublished(PublishMode.REVEAL);
+        timer.start();
+        assertFalse(drawer.isOffscreen());
+        drawer.surfaceCreated(mHolder);
+        assertFalse(drawer.isOffscreen());
+        drawer.surfaceDestroyed(mHolder);
+        assertTrue(drawer.isOffscreen());
+        drawer.release();
+    }
+
+    public void testSilentCardOffscreenUntilSurfaceCreated() {
+        Timer timer = new Timer(TimeUnit.MINUTES.toMillis(5));
+        TimerDrawer drawer = new TimerDrawer(getContext(), timer, new TickScheduler());
+
+        drawer.onPublished(PublishMode.SILENT);
+        assertTrue(drawer.isOffscreen());
+        drawer.surfaceCreated(mHolder);
+        assertFalse(drawer.isOffscreen());
+        drawer.release();
+    }
+
     public void testDrawProperlyLocksAndUnlocksCanvas() {
         // This also calls mDrawer.draw();
         mDrawer.surfaceCreated(mHolder);
@@ -200,4 +327,159 @@ public class TimerDrawerTest extends AndroidTestCase {
         assertEquals(2, mDrawCount);
     }
 
+    public void testSurfaceChangedLocksWholeSurface() {
+        mDrawer.surfaceCreated(mHolder);
+        mDrawer.surfaceChanged(mHolder, 0, SURFACE_WIDTH, SURFACE_HEIGHT);
+        assertEquals(2, mCanvasLockedCount);
+        assertNull(mLockedRect);
+    }
+
+    public void testSurfaceChangedSameDimensionsSkipsLayout() {
+        mDrawer.surfaceCreated(mHolder);
+        mDrawer.surfaceChanged(mHolder, 0, SURFACE_WIDTH, SURFACE_HEIGHT);
+        mDrawer.surfaceChanged(mHolder, 0, SURFACE_WIDTH, SURFACE_HEIGHT);
+        assertEquals(1, mMeasureCount);
+        assertEquals(1, mLayoutCount);
+        // The surface content is still fully repainted.
+        assertEquals(3, mCanvasLockedCount);
+    }
+
+    public void testSurfaceChangedNewDimensionsLayouts() {
+        mDrawer.surfaceChanged(mHolder, 0, SURFACE_WIDTH, SURFACE_HEIGHT);
+        mDrawer.surfaceChanged(mHolder, 0, SURFACE_HEIGHT, SURFACE_WIDTH);
+        assertEquals(2, mLayoutCount);
+        assertEquals(SURFACE_HEIGHT, mView.getWidth());
+    }
+
+    public void testSteadyStateTicksDoNoLayout() {
+        int white = getContext().getResources().getColor(R.color.white);
+        int red = getContext().getResources().getColor(R.color.red);
+
+        mDrawer.surfaceCreated(mHolder);
+        mDrawer.surfaceChanged(mHolder, 0, SURFACE_WIDTH, SURFACE_HEIGHT);
+        for (int i = 0; i < 100; ++i) {
+            mView.updateText(TimeUnit.HOURS.toMillis(2) - TimeUnit.SECONDS.toMillis(i),
+                    i % 2 == 0 ? white : red);
+            assertFalse(mView.isLayoutRequested());
+        }
+        mDrawer.surfaceChanged(mHolder, 0, SURFACE_WIDTH, SURFACE_HEIGHT);
+        assertEquals(1, mMeasureCount);
+        assertEquals(1, mLayoutCount);
+    }
+
+    public void testDrawLocksOnlyChangedComponents() {
+        int white = getContext().getResources().getColor(R.color.white);
+        long timeMillis = TimeUnit.MINUTES.toMillis(5);
+
+        mDrawer.surfaceCreated(mHolder);
+        mDrawer.surfaceChanged(mHolder, 0, SURFACE_WIDTH, SURFACE_HEIGHT);
+        mView.updateText(timeMillis, white);
+        mView.updateText(timeMillis - TimeUnit.SECONDS.toMillis(1), white);
+
+        View secondsView = mView.findViewById(R.id.seconds);
+        View parent = (View) secondsView.getParent();
+        int left = parent.getLeft() + secondsView.getLeft();
+        int top = parent.getTop() + secondsView.getTop();
+
+        assertEquals(
+                new Rect(left, top, left + secondsView.getWidth(), top + secondsView.getHeight()),
+                mLockedRect);
+    }
+
+    public void testRenderThreadCoalescesFrames() {
+        int white = getContext().getResources().getColor(R.color.white);
+        MockRenderThread renderThread = new MockRenderThread();
+
+        mDrawer.setRenderThread(renderThread);
+        mView.updateText(TimeUnit.HOURS.toMillis(1), white);
+        mDrawer.surfaceCreated(mHolder);
+        mDrawer.surfaceChanged(mHolder, 0, SURFACE_WIDTH, SURFACE_HEIGHT);
+        renderThread.runPosted();
+        int lockedCount = mCanvasLockedCount;
+        int drawCount = mDrawCount;
+
+        mView.updateText(TimeUnit.HOURS.toMillis(1) - TimeUnit.SECONDS.toMillis(1), white);
+        mView.updateText(TimeUnit.HOURS.toMillis(1) - TimeUnit.SECONDS.toMillis(2), white);
+        assertEquals(1, renderThread.mPosted.size());
+        assertEquals(lockedCount, mCanvasLockedCount);
+        renderThread.runPosted();
+        assertEquals(lockedCount + 1, mCanvasLockedCount);
+        // The view hierarchy is never drawn, only the atlas from the render thread.
+        assertEquals(drawCount, mDrawCount);
+        renderThread.quit();
+    }
+
+    public void testRenderThreadSkipsUnsupportedFrames() {
+        int white = getContext().getResources().getColor(R.color.white);
+        MockRenderThread renderThread = new MockRenderThread();
+
+        mDrawer.setRenderThread(renderThread);
+        mView.updateText(TimeUnit.HOURS.toMillis(1), white);
+        mDrawer.surfaceCreated(mHolder);
+        mDrawer.surfaceChanged(mHolder, 0, SURFACE_WIDTH, SURFACE_HEIGHT);
+        renderThread.runPosted();
+        mView.updateText(TimeUnit.HOURS.toMillis(1) - TimeUnit.SECONDS.toMillis(1), white);
+        int lockedCount = mCanvasLockedCount;
+        int drawCount = mDrawCount;
+
+        // Three digits hours are drawn from the view hierarchy, on the main thread.
+        mView.updateText(TimeUnit.HOURS.toMillis(100), white);
+        assertEquals(drawCount + 1, mDrawCount);
+        assertEquals(lockedCount + 1, mCanvasLockedCount);
+        renderThread.runPosted();
+        assertEquals(lockedCount + 1, mCanvasLockedCount);
+        renderThread.quit();
+    }
+
+    public void testUnchangedTextDoesNotDraw() {
+        int white = getContext().getResources().getColor(R.color.white);
+        long timeMillis = TimeUnit.MINUTES.toMillis(5);
+
+        mDrawer.surfaceCreated(mHolder);
+        mView.updateText(timeMillis, white);
+        int drawCount = mDrawCount;
+
+        mView.updateText(timeMillis, white);
+        assertEquals(drawCount, mDrawCount);
+    }
+
+    /** Compares the cost of a dirty region frame against a full redraw. */
+    @LargeTest
+    public void testDirtyRegionFrameCost() {
+        TimerView view = new TimerView(getContext());
+        Bitmap bitmap =
+                Bitmap.createBitmap(SURFACE_WIDTH, SURFACE_HEIGHT, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Rect dirtyRect = new Rect();
+        int white = getContext().getResources().getColor(R.color.white);
+
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(SURFACE_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SURFACE_HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, SURFACE_WIDTH, SURFACE_HEIGHT);
+        view.updateText(TimeUnit.HOURS.toMillis(1), white);
+        view.clearDirty();
+        view.updateText(TimeUnit.HOURS.toMillis(1) - TimeUnit.SECONDS.toMillis(1), white);
+        assertTrue(view.getDirtyRect(dirtyRect));
+
+        long fullNanos = 0;
+        long dirtyNanos = 0;
+        for (int i = 0; i < BENCHMARK_FRAMES; ++i) {
+            long startNanos = System.nanoTime();
+            view.draw(canvas);
+            fullNanos += System.nanoTime() - startNanos;
+
+            startNanos = System.nanoTime();
+            canvas.save();
+            canvas.clipRect(dirtyRect);
+            view.draw(canvas);
+            canvas.restore();
+            dirtyNanos += System.nanoTime() - startNanos;
+        }
+        Log.i(TAG, "Full redraw: " + fullNanos / BENCHMARK_FRAMES + "ns/frame, dirty region "
+                + dirtyRect.toShortString() + ": " + dirtyNanos / BENCHMARK_FRAMES + "ns/frame");
+        bitmap.recycle();
+        view.release();
+    }
+
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+/**
+ * Unit tests for {@link TimerExpiryAlarm}.
+ */
+@SmallTest
+public class TimerExpiryAlarmTest extends AndroidTestCase {
+
+    private static final long ELAPSED_REALTIME_MILLIS = 5000;
+
+    private long mRemainingTimeMillis;
+    private long mAlarmTimerId;
+    private long mAlarmTriggerAtMillis;
+
+    private TimerExpiryAlarm mAlarm;
+
+    /** Extension of {@link Timer} for easier testing. */
+    private final Timer mTimer = new Timer() {
+        @Override
+        public long getRemainingTimeMillis() {
+            return mRemainingTimeMillis;
+        }
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mAlarmTimerId = 0;
+        mAlarmTriggerAtMillis = 0;
+        mAlarm = new TimerExpiryAlarm(getContext()) {
+
+            @Override
+            protected void setAlarm(long timerId, long triggerAtMillis) {
+                mAlarmTimerId = timerId;
+                mAlarmTriggerAtMillis = triggerAtMillis;
+            }
+
+            @Override
+            protected long elapsedRealtime() {
+                return ELAPSED_REALTIME_MILLIS;
+            }
+        };
+    }
+
+    public void testSetAtDeadline() {
+        mRemainingTimeMillis = 1200;
+        mAlarm.set(mTimer);
+        assertEquals(mTimer.getId(), mAlarmTimerId);
+        assertEquals(ELAPSED_REALTIME_MILLIS + 1200, mAlarmTriggerAtMillis);
+    }
+
+    public void testSetExpiredTimerDoesNothing() {
+        mRemainingTimeMillis = -1;
+        mAlarm.set(mTimer);
+        assertEquals(0, mAlarmTimerId);
+    }
+
+    public void testCancelWithoutAlarm() {
+        // Must not fail when no alarm was set.
+        mAlarm.cancel(mTimer);
+    }
+}
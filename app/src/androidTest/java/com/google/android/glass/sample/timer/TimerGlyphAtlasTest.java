@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+import android.view.View;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link TimerGlyphAtlas}.
+ */
+@SmallTest
+public class TimerGlyphAtlasTest extends AndroidTestCase {
+
+    private static final String TAG = TimerGlyphAtlasTest.class.getSimpleName();
+
+    private static final int SURFACE_WIDTH = 640;
+    private static final int SURFACE_HEIGHT = 360;
+    private static final int BENCHMARK_FRAMES = 200;
+    /** Maximum difference per color channel, for the rounding of the blended glyph edges. */
+    private static final int CHANNEL_TOLERANCE = 2;
+
+    private TimerView mView;
+    private TimerGlyphAtlas mAtlas;
+    private Bitmap mViewBitmap;
+    private Bitmap mAtlasBitmap;
+    private int mWhite;
+    private int mRed;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mWhite = getContext().getResources().getColor(R.color.white);
+        mRed = getContext().getResources().getColor(R.color.red);
+        mView = new TimerView(getContext());
+        mView.measure(
+                View.MeasureSpec.makeMeasureSpec(SURFACE_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SURFACE_HEIGHT, View.MeasureSpec.EXACTLY));
+        mView.layout(0, 0, SURFACE_WIDTH, SURFACE_HEIGHT);
+        mAtlas = new TimerGlyphAtlas(mView);
+        mViewBitmap = Bitmap.createBitmap(SURFACE_WIDTH, SURFACE_HEIGHT, Bitmap.Config.ARGB_8888);
+        mAtlasBitmap = Bitmap.createBitmap(SURFACE_WIDTH, SURFACE_HEIGHT, Bitmap.Config.ARGB_8888);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mAtlas.recycle();
+        mViewBitmap.recycle();
+        mAtlasBitmap.recycle();
+        mView.release();
+        super.tearDown();
+    }
+
+    public void testPixelParityWhite() {
+        mView.updateText(TimeUnit.HOURS.toMillis(12) + TimeUnit.MINUTES.toMillis(34)
+                + TimeUnit.SECONDS.toMillis(56), mWhite);
+        assertPixelParity();
+    }
+
+    public void testPixelParityRedWithTip() {
+        mView.updateText(TimeUnit.MINUTES.toMillis(7) + TimeUnit.SECONDS.toMillis(29), mRed);
+        mView.findViewById(R.id.tip).setVisibility(View.VISIBLE);
+        assertPixelParity();
+    }
+
+    public void testEveryDigitParity() {
+        for (int digit = 0; digit < 10; ++digit) {
+            mView.updateText(TimeUnit.HOURS.toMillis(digit * 11), mWhite);
+            assertPixelParity();
+        }
+    }
+
+    public void testThreeDigitsHoursNotSupported() {
+        mView.updateText(TimeUnit.HOURS.toMillis(100), mWhite);
+        assertFalse(mAtlas.draw(new Canvas(mAtlasBitmap), mView));
+    }
+
+    public void testOtherColorNotSupported() {
+        mView.updateText(TimeUnit.MINUTES.toMillis(1), Color.GREEN);
+        assertFalse(mAtlas.draw(new Canvas(mAtlasBitmap), mView));
+    }
+
+    /** Compares the cost of a frame drawn from the atlas against drawing the view hierarchy. */
+    @LargeTest
+    public void testFrameCost() {
+        Canvas canvas = new Canvas(mAtlasBitmap);
+        long viewNanos = 0;
+        long atlasNanos = 0;
+
+        mView.updateText(TimeUnit.HOURS.toMillis(1), mWhite);
+        for (int i = 0; i < BENCHMARK_FRAMES; ++i) {
+            long startNanos = System.nanoTime();
+            mView.draw(canvas);
+            viewNanos += System.nanoTime() - startNanos;
+
+            startNanos = System.nanoTime();
+            mAtlas.draw(canvas, mView);
+            atlasNanos += System.nanoTime() - startNanos;
+        }
+        Log.i(TAG, "View hierarchy: " + viewNanos / BENCHMARK_FRAMES + "ns/frame, glyph atlas: "
+                + atlasNanos / BENCHMARK_FRAMES + "ns/frame");
+    }
+
+    private void assertPixelParity() {
+        mView.draw(new Canvas(mViewBitmap));
+        assertTrue(mAtlas.draw(new Canvas(mAtlasBitmap), mView));
+
+        for (int y = 0; y < SURFACE_HEIGHT; ++y) {
+            for (int x = 0; x < SURFACE_WIDTH; ++x) {
+                int expected = mViewBitmap.getPixel(x, y);
+                int actual = mAtlasBitmap.getPixel(x, y);
+
+                if (Math.abs(Color.red(expected) - Color.red(actual)) > CHANNEL_TOLERANCE
+                        || Math.abs(Color.green(expected) - Color.green(actual))
+                                > CHANNEL_TOLERANCE
+                        || Math.abs(Color.blue(expected) - Color.blue(actual))
+                                > CHANNEL_TOLERANCE) {
+                    fail("Pixel (" + x + ", " + y + ") differs: "
+                            + Integer.toHexString(expected) + " != "
+                            + Integer.toHexString(actual));
+                }
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.google.android.glass.timeline.LiveCard;
 import android.test.AndroidTestCase;
 import android.test.suitebuilder.annotation.SmallTest;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -53,12 +54,97 @@ public class TimerLiveCardManagerTest extends AndroidTestCase {
         assertTrue(liveCard.isPublished());
     }
 
+    public void testStartNewTimers() {
+        long[] durationsMillis = { INITIAL_DURATION_MILLIS, INITIAL_DURATION_MILLIS * 2 };
+        List<Timer> timers = mManager.startNewTimers(durationsMillis);
+
+        assertEquals(2, timers.size());
+        assertEquals(2, mManager.getTimerCount());
+        for (int i = 0; i < durationsMillis.length; ++i) {
+            Timer timer = timers.get(i);
+
+            assertTrue(timer.isRunning());
+            assertEquals(durationsMillis[i], timer.getDurationMillis());
+            assertTrue(mManager.getLiveCard(timer).isPublished());
+        }
+        assertTrue(timers.get(0).getId() < timers.get(1).getId());
+        assertEquals(2, mManager.getExpiryTracker().getPendingCount());
+    }
+
     public void testStopTimer() {
         Timer timer1 = mManager.startNewTimer(INITIAL_DURATION_MILLIS);
         Timer timer2 = mManager.startNewTimer(INITIAL_DURATION_MILLIS);
 
-        assertFalse(mManager.stopTimer(timer1.hashCode()));
-        assertTrue(mManager.stopTimer(timer2.hashCode()));
+        assertFalse(mManager.stopTimer(timer1.getId()));
+        assertTrue(mManager.stopTimer(timer2.getId()));
         assertTrue(mManager.stopTimer(0));
     }
+
+    public void testStopTimerReleasesSound() {
+        int initialCount = TimerSoundPool.getReferenceCount();
+        Timer timer = mManager.startNewTimer(INITIAL_DURATION_MILLIS);
+
+        assertEquals(initialCount + 1, TimerSoundPool.getReferenceCount());
+        mManager.stopTimer(timer.getId());
+        assertEquals(initialCount, TimerSoundPool.getReferenceCount());
+    }
+
+    public void testDisablingRenderThreadDetachesDrawers() {
+        mManager.setRenderThreadEnabled(true);
+        Timer timer = mManager.startNewTimer(INITIAL_DURATION_MILLIS);
+        TimerDrawer drawer = mManager.getDrawer(timer);
+
+        assertNotNull(drawer.getRenderThread());
+        mManager.setRenderThreadEnabled(false);
+        assertNull(drawer.getRenderThread());
+        mManager.stopTimer(timer.getId());
+    }
+
+    public void testRunningTimersTrackedForExpiry() {
+        Timer timer = mManager.startNewTimer(INITIAL_DURATION_MILLIS);
+        TimerExpiryTracker tracker = mManager.getExpiryTracker();
+
+        assertEquals(1, tracker.getPendingCount());
+        timer.pause();
+        assertEquals(0, tracker.getPendingCount());
+        timer.start();
+        assertEquals(1, tracker.getPendingCount());
+        mManager.stopTimer(timer.getId());
+        assertEquals(0, tracker.getPendingCount());
+    }
+
+    public void testFindTimer() {
+        Timer timer1 = mManager.startNewTimer(INITIAL_DURATION_MILLIS);
+        Timer timer2 = mManager.startNewTimer(INITIAL_DURATION_MILLIS);
+
+        assertTrue(timer1.getId() < timer2.getId());
+        assertSame(timer1, mManager.findTimer(timer1.getId()));
+        assertSame(timer2, mManager.findTimer(timer2.getId()));
+        assertNull(mManager.findTimer(0));
+        mManager.stopTimer(timer1.getId());
+        assertNull(mManager.findTimer(timer1.getId()));
+        mManager.stopTimer(timer2.getId());
+    }
+
+    public void testGetSnapshots() {
+        long[] durationsMillis = { INITIAL_DURATION_MILLIS * 2, INITIAL_DURATION_MILLIS };
+        List<Timer> timers = mManager.startNewTimers(durationsMillis);
+
+        timers.get(1).pause();
+        List<TimerSnapshot> snapshots = mManager.getSnapshots();
+
+        assertEquals(2, snapshots.size());
+        for (int i = 0; i < durationsMillis.length; ++i) {
+            assertEquals(timers.get(i).getId(), snapshots.get(i).getId());
+            assertEquals(durationsMillis[i], snapshots.get(i).getDurationMillis());
+        }
+        assertTrue(snapshots.get(0).isRunning());
+        assertTrue(snapshots.get(1).isPaused());
+        assertTrue(mManager.getSnapshot(timers.get(1).getId()).isPaused());
+        assertNull(mManager.getSnapshot(0));
+        for (Timer timer : timers) {
+            mManager.stopTimer(timer.getId());
+        }
+        assertTrue(mManager.getSnapshots().isEmpty());
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+/**
+ * Unit tests for {@link TimerSoundPool}.
+ */
+@SmallTest
+public class TimerSoundPoolTest extends AndroidTestCase {
+
+    public void testAcquireAndReleaseReferenceCount() {
+        int initialCount = TimerSoundPool.getReferenceCount();
+        TimerSoundPool.Handle handle1 = TimerSoundPool.acquire(getContext());
+        TimerSoundPool.Handle handle2 = TimerSoundPool.acquire(getContext());
+
+        assertEquals(initialCount + 2, TimerSoundPool.getReferenceCount());
+        handle1.release();
+        assertEquals(initialCount + 1, TimerSoundPool.getReferenceCount());
+        handle2.release();
+        assertEquals(initialCount, TimerSoundPool.getReferenceCount());
+    }
+
+    public void testReleaseTwiceIsNoOp() {
+        int initialCount = TimerSoundPool.getReferenceCount();
+        TimerSoundPool.Handle handle = TimerSoundPool.acquire(getContext());
+
+        handle.release();
+        handle.release();
+        assertEquals(initialCount, TimerSoundPool.getReferenceCount());
+    }
+
+    public void testPlayAfterReleaseIsNoOp() {
+        TimerSoundPool.Handle handle = TimerSoundPool.acquire(getContext());
+
+        handle.release();
+        // Must not touch the released SoundPool.
+        handle.play();
+    }
+}
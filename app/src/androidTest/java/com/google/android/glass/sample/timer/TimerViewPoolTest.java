@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+import android.view.View;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link TimerViewPool}.
+ */
+@SmallTest
+public class TimerViewPoolTest extends AndroidTestCase {
+
+    private static final String TAG = TimerViewPoolTest.class.getSimpleName();
+
+    private static final int CAPACITY = 2;
+    private static final int SURFACE_WIDTH = 640;
+    private static final int SURFACE_HEIGHT = 360;
+    private static final int BENCHMARK_STARTS = 50;
+
+    private TimerViewPool mPool;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPool = new TimerViewPool(getContext(), CAPACITY);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mPool.clear();
+        super.tearDown();
+    }
+
+    public void testAcquireFromEmptyPoolInflates() {
+        TimerView view = mPool.acquire();
+
+        assertNotNull(view);
+        assertEquals(0, mPool.getHitCount());
+        assertEquals(1, mPool.getMissCount());
+        view.release();
+    }
+
+    public void testRecycledViewReused() {
+        TimerView view = mPool.acquire();
+
+        view.setTimer(new Timer(TimeUnit.MINUTES.toMillis(5)));
+        mPool.recycle(view);
+        assertEquals(1, mPool.size());
+        assertNull(view.getTimer());
+
+        assertSame(view, mPool.acquire());
+        assertEquals(1, mPool.getHitCount());
+        assertEquals(0, mPool.size());
+        view.release();
+    }
+
+    public void testRecycledViewStopsFollowingTimer() {
+        Timer timer = new Timer(TimeUnit.MINUTES.toMillis(5));
+        TimerView view = mPool.acquire();
+        final boolean[] changed = new boolean[1];
+
+        view.setTimer(timer);
+        view.setListener(new TimerView.ChangeListener() {
+
+            @Override
+            public void onChange() {
+                changed[0] = true;
+            }
+        });
+        mPool.recycle(view);
+        timer.setDurationMillis(TimeUnit.MINUTES.toMillis(1));
+        assertFalse(changed[0]);
+        assertNull(view.getListener());
+    }
+
+    public void testFullPoolReleasesViews() {
+        int initialSoundCount = TimerSoundPool.getReferenceCount();
+        TimerView[] views = new TimerView[CAPACITY + 1];
+
+        for (int i = 0; i < views.length; ++i) {
+            views[i] = mPool.acquire();
+        }
+        assertEquals(initialSoundCount + views.length, TimerSoundPool.getReferenceCount());
+        for (TimerView view : views) {
+            mPool.recycle(view);
+        }
+        assertEquals(CAPACITY, mPool.size());
+        assertEquals(initialSoundCount + CAPACITY, TimerSoundPool.getReferenceCount());
+        mPool.clear();
+        assertEquals(0, mPool.size());
+        assertEquals(initialSoundCount, TimerSoundPool.getReferenceCount());
+    }
+
+    /** Compares the latency of showing a new timer with a cold and with a warm pool. */
+    @LargeTest
+    public void testStartLatency() {
+        long coldNanos = 0;
+        long warmNanos = 0;
+
+        for (int i = 0; i < BENCHMARK_STARTS; ++i) {
+            TimerViewPool coldPool = new TimerViewPool(getContext(), CAPACITY);
+            long startNanos = System.nanoTime();
+            TimerView view = startTimer(coldPool);
+            coldNanos += System.nanoTime() - startNanos;
+            coldPool.recycle(view);
+            coldPool.clear();
+        }
+        mPool.recycle(mPool.acquire());
+        for (int i = 0; i < BENCHMARK_STARTS; ++i) {
+            long startNanos = System.nanoTime();
+            TimerView view = startTimer(mPool);
+            warmNanos += System.nanoTime() - startNanos;
+            mPool.recycle(view);
+        }
+        Log.i(TAG, "Cold pool: " + coldNanos / BENCHMARK_STARTS + "ns/start, warm pool: "
+                + warmNanos / BENCHMARK_STARTS + "ns/start, hit rate: " + mPool.getHitCount()
+                + "/" + (mPool.getHitCount() + mPool.getMissCount()));
+    }
+
+    /** Acquires and lays out a view for a new running timer, as its card first shows up. */
+    private TimerView startTimer(TimerViewPool pool) {
+        Timer timer = new Timer(TimeUnit.MINUTES.toMillis(5));
+        TimerView view = pool.acquire();
+
+        timer.start();
+        view.setTimer(timer);
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(SURFACE_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SURFACE_HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, SURFACE_WIDTH, SURFACE_HEIGHT);
+        return view;
+    }
+}
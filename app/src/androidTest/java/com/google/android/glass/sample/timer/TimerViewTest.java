@@ -37,6 +37,7 @@ public class TimerViewTest extends AndroidTestCase {
     private static final String INITIAL_HOURS_COMPONENT = "02";
     private static final String INITIAL_MINUTES_COMPONENT = "30";
     private static final String INITIAL_SECONDS_COMPONENT = "00";
+    private static final long ELAPSED_REALTIME_MILLIS = TimeUnit.HOURS.toMillis(1);
 
     private long mRemainingTimeMillis;
 
@@ -52,10 +53,12 @@ public class TimerViewTest extends AndroidTestCase {
     private boolean mPlaySoundCalled;
     private boolean mUpdateTextCalled;
     private int mTextColor;
-    private long mPostedCallbackDelayMillis;
+    private long mSubscribedDelayMillis;
     private long mTimeMillis;
-    private Runnable mPostedCallback;
-    private Runnable mRemovedCallback;
+    private TickScheduler.TickListener mSubscribedListener;
+    private TickScheduler.TickListener mUnsubscribedListener;
+    private long mAlarmTriggerAtMillis;
+    private boolean mAlarmCancelled;
 
     /** Extension of {@link Timer} for easier testing. */
     private final Timer mTimer = new Timer() {
@@ -63,27 +66,61 @@ public class TimerViewTest extends AndroidTestCase {
         public long getRemainingTimeMillis() {
             return mRemainingTimeMillis;
         }
+
+        @Override
+        public long getMillisToNextSecond() {
+            return isRunning()
+                    ? mRemainingTimeMillis % TimeUnit.SECONDS.toMillis(1) : Long.MAX_VALUE;
+        }
     };
 
-    /** Extension of {@link TimerView} for easier testing. */
-    private class MockTimerView extends TimerView {
+    /** Extension of {@link TickScheduler} recording the subscriptions. */
+    private class MockTickScheduler extends TickScheduler {
 
-        public MockTimerView(Context context, Timer timer) {
-            super(context, null, 0);
-            setTimer(timer);
+        @Override
+        public void subscribe(TickListener listener) {
+            mSubscribedListener = listener;
+            mSubscribedDelayMillis = listener.getNextTickDelayMillis();
         }
 
         @Override
-        public boolean postDelayed(Runnable action, long delayMillis) {
-            mPostedCallback = action;
-            mPostedCallbackDelayMillis = delayMillis;
-            return true;
+        public void unsubscribe(TickListener listener) {
+            mUnsubscribedListener = listener;
+        }
+    }
+
+    /** Extension of {@link TimerExpiryAlarm} recording the alarms. */
+    private class MockExpiryAlarm extends TimerExpiryAlarm {
+
+        public MockExpiryAlarm(Context context) {
+            super(context);
         }
 
         @Override
-        public boolean removeCallbacks(Runnable action) {
-            mRemovedCallback = action;
-            return true;
+        protected void setAlarm(long timerId, long triggerAtMillis) {
+            assertEquals(mTimer.getId(), timerId);
+            mAlarmTriggerAtMillis = triggerAtMillis;
+        }
+
+        @Override
+        protected void cancelAlarm(long timerId) {
+            assertEquals(mTimer.getId(), timerId);
+            mAlarmCancelled = true;
+        }
+
+        @Override
+        protected long elapsedRealtime() {
+            return ELAPSED_REALTIME_MILLIS;
+        }
+    }
+
+    /** Extension of {@link TimerView} for easier testing. */
+    private class MockTimerView extends TimerView {
+
+        public MockTimerView(Context context, Timer timer) {
+            super(context, null, 0);
+            setTickScheduler(new MockTickScheduler());
+            setTimer(timer);
         }
 
         @Override
@@ -113,14 +150,17 @@ public class TimerViewTest extends AndroidTestCase {
         mPlaySoundCalled = false;
         mTimeMillis = 0;
         mTextColor = 0;
-        mPostedCallback = null;
-        mRemovedCallback = null;
-        mPostedCallbackDelayMillis = 0;
+        mSubscribedListener = null;
+        mUnsubscribedListener = null;
+        mSubscribedDelayMillis = 0;
         mOnChangeCalled = false;
+        mAlarmTriggerAtMillis = 0;
+        mAlarmCancelled = false;
 
         // Initialize test objects.
         mRemainingTimeMillis = INITIAL_DURATION_MILLIS;
         mView = new MockTimerView(getContext(), mTimer);
+        mView.setExpiryAlarm(new MockExpiryAlarm(getContext()));
         mView.setListener(new TimerView.ChangeListener() {
 
             @Override
@@ -145,25 +185,92 @@ public class TimerViewTest extends AndroidTestCase {
     }
 
     public void testListenerOnStart() {
+        mRemainingTimeMillis -= 700;
         mTimer.start();
-        assertNotNull(mPostedCallback);
-        assertEquals(TimerView.DELAY_MILLIS, mPostedCallbackDelayMillis);
+        assertNotNull(mSubscribedListener);
+        assertEquals(300, mSubscribedDelayMillis);
     }
 
-    public void testListenerOnStartWithNoneDefaultDelay() {
-        // Remove 700ms from the remaining time.
-        mRemainingTimeMillis -= 700;
+    public void testTickDelayRecomputedFromTimer() {
         mTimer.start();
-        assertNotNull(mPostedCallback);
-        assertEquals(300, mPostedCallbackDelayMillis);
+        mRemainingTimeMillis -= 1150;
+        assertEquals(850, mSubscribedListener.getNextTickDelayMillis());
+        mTimer.pause();
+        assertEquals(Long.MAX_VALUE, mSubscribedListener.getNextTickDelayMillis());
     }
 
-    public void testListenerOnPauseRemovesCallback() {
+    public void testSetRunningTimerSubscribes() {
         mTimer.start();
+        mSubscribedListener = null;
+
+        MockTimerView view = new MockTimerView(getContext(), mTimer);
+        assertNotNull(mSubscribedListener);
+        view.release();
+    }
+
+    public void testListenerOnPauseUnsubscribes() {
+        mTimer.start();
+        mTimer.pause();
+        assertNotNull(mSubscribedListener);
+        assertNotNull(mUnsubscribedListener);
+        assertEquals(mSubscribedListener, mUnsubscribedListener);
+    }
+
+    public void testTickUpdatesTextWhenRunning() {
+        mTimer.start();
+        mUpdateTextCalled = false;
+        mSubscribedListener.onTick();
+        assertTrue(mUpdateTextCalled);
+    }
+
+    public void testTickIgnoredWhenPaused() {
+        mTimer.start();
+        mTimer.pause();
+        mUpdateTextCalled = false;
+        mSubscribedListener.onTick();
+        assertFalse(mUpdateTextCalled);
+    }
+
+    public void testHiddenStopsTickingAndSetsAlarm() {
+        mTimer.start();
+        mView.setHidden(true);
+        assertEquals(mSubscribedListener, mUnsubscribedListener);
+        assertEquals(ELAPSED_REALTIME_MILLIS + INITIAL_DURATION_MILLIS, mAlarmTriggerAtMillis);
+    }
+
+    public void testStartWhileHiddenOnlySetsAlarm() {
+        mView.setHidden(true);
+        mTimer.start();
+        assertNull(mSubscribedListener);
+        assertEquals(ELAPSED_REALTIME_MILLIS + INITIAL_DURATION_MILLIS, mAlarmTriggerAtMillis);
+    }
+
+    public void testHiddenPausedTimerSetsNoAlarm() {
+        mTimer.start();
+        mTimer.pause();
+        mView.setHidden(true);
+        assertEquals(0, mAlarmTriggerAtMillis);
+    }
+
+    public void testPauseWhileHiddenCancelsAlarm() {
+        mTimer.start();
+        mView.setHidden(true);
         mTimer.pause();
-        assertNotNull(mPostedCallback);
-        assertNotNull(mRemovedCallback);
-        assertEquals(mPostedCallback, mRemovedCallback);
+        assertTrue(mAlarmCancelled);
+    }
+
+    public void testVisibleResyncsAndResumesTicking() {
+        mTimer.start();
+        mView.setHidden(true);
+        mSubscribedListener = null;
+        mUpdateTextCalled = false;
+        mRemainingTimeMillis -= TimeUnit.MINUTES.toMillis(10) + 400;
+
+        mView.setHidden(false);
+        assertTrue(mAlarmCancelled);
+        assertTrue(mUpdateTextCalled);
+        assertNotNull(mSubscribedListener);
+        assertEquals(600, mSubscribedDelayMillis);
     }
 
     public void testListenerOnReset() {
@@ -208,9 +315,9 @@ public class TimerViewTest extends AndroidTestCase {
 
         mMockUpdateText = false;
         mView.updateText(INITIAL_DURATION_MILLIS, colorRed);
-        assertEquals(INITIAL_HOURS_COMPONENT, mHoursView.getText());
-        assertEquals(INITIAL_MINUTES_COMPONENT, mMinutesView.getText());
-        assertEquals(INITIAL_SECONDS_COMPONENT, mSecondsView.getText());
+        assertEquals(INITIAL_HOURS_COMPONENT, mHoursView.getText().toString());
+        assertEquals(INITIAL_MINUTES_COMPONENT, mMinutesView.getText().toString());
+        assertEquals(INITIAL_SECONDS_COMPONENT, mSecondsView.getText().toString());
         assertEquals(colorRed, mHoursView.getTextColors().getDefaultColor());
         assertEquals(colorRed, mMinutesView.getTextColors().getDefaultColor());
         assertEquals(colorRed, mSecondsView.getTextColors().getDefaultColor());
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.os.SystemClock;
+
+/**
+ * {@link Clock} backed by {@link SystemClock#elapsedRealtimeNanos()}, which keeps counting while
+ * the device is in deep sleep.
+ */
+public class ElapsedRealtimeClock implements Clock {
+
+    @Override
+    public long nanoTime() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /** Returns the wall clock time at which this clock started counting, i.e. of the last boot. */
+    public static long getBootTimeMillis() {
+        return System.currentTimeMillis() - SystemClock.elapsedRealtime();
+    }
+}
@@ -52,6 +52,8 @@ public class MenuActivity extends Activity {
     private boolean mIsSettingTimer;
 
     private boolean mFromLiveCardVoice;
+    /** Time at which the activity was created, until the menu is opened. */
+    private long mCreateNanos;
 
     private ServiceConnection mConnection = new ServiceConnection() {
         @Override
@@ -82,13 +84,21 @@ public class MenuActivity extends Activity {
             getWindow().requestFeature(WindowUtils.FEATURE_VOICE_COMMANDS);
         }
 
-        // Bind to the Timer service to retrive the current timer's data.
-        Intent serviceIntent = new Intent(this, TimerService.class);
-        serviceIntent.putExtra(
-            TimerService.EXTRA_TIMER_HASH_CODE,
-            getIntent().getIntExtra(TimerService.EXTRA_TIMER_HASH_CODE, 0));
-        serviceIntent.setData(getIntent().getData());
-        bindService(serviceIntent, mConnection, 0);
+        mCreateNanos = System.nanoTime();
+        TimerStateProvider stateProvider = getInProcessStateProvider();
+        if (stateProvider != null) {
+            // The service lives in this process: reach the timer without a binding round trip,
+            // so that the menu can be prepared as soon as the window is attached.
+            mTimer = stateProvider.findTimer(TimerService.getTimerId(getIntent()));
+        }
+        if (mTimer == null) {
+            // Bind to the Timer service to retrive the current timer's data.
+            Intent serviceIntent = new Intent(this, TimerService.class);
+            serviceIntent.putExtra(TimerService.EXTRA_TIMER_ID,
+                    getIntent().getLongExtra(TimerService.EXTRA_TIMER_ID, 0));
+            serviceIntent.setData(getIntent().getData());
+            bindService(serviceIntent, mConnection, 0);
+        }
     }
 
     @Override
@@ -121,14 +131,15 @@ public class MenuActivity extends Activity {
                 // Can't prepare the menu as we're not yet bound to a timer.
                 return false;
             } else {
-                setOptionsMenuState(
-                    menu.findItem(R.id.start), !mTimer.isRunning() && !mTimer.isStarted());
-                setOptionsMenuState(
-                    menu.findItem(R.id.resume), !mTimer.isRunning() && mTimer.isStarted());
+                // A single snapshot so that the items agree even if the timer concurrently changes.
+                TimerSnapshot snapshot = mTimer.getSnapshot();
+
+                setOptionsMenuState(menu.findItem(R.id.start), !snapshot.isStarted());
+                setOptionsMenuState(menu.findItem(R.id.resume), snapshot.isPaused());
                 setOptionsMenuState(
                     menu.findItem(R.id.pause),
-                    mTimer.isRunning() && mTimer.getRemainingTimeMillis() > 0);
-                setOptionsMenuState(menu.findItem(R.id.reset), mTimer.isStarted());
+                    snapshot.isRunning() && snapshot.getRemainingTimeMillis() > 0);
+                setOptionsMenuState(menu.findItem(R.id.reset), snapshot.isStarted());
                 // Don't reopen menu once we are finishing. This is necessary
                 // since voice menus reopen themselves while in focus.
                 return !mIsMenuClosed;
@@ -178,8 +189,7 @@ public class MenuActivity extends Activity {
                         Intent timerIntent = new Intent(MenuActivity.this, TimerService.class);
 
                         timerIntent.setAction(TimerService.ACTION_STOP);
-                        timerIntent.putExtra(
-                                TimerService.EXTRA_TIMER_HASH_CODE, mTimer.hashCode());
+                        timerIntent.putExtra(TimerService.EXTRA_TIMER_ID, mTimer.getId());
                         startService(timerIntent);
                     }
                 });
@@ -220,11 +230,23 @@ public class MenuActivity extends Activity {
         mHandler.post(runnable);
     }
 
+    /**
+     * Returns the {@link TimerStateProvider} of the {@link TimerService} if it lives in this
+     * process, {@code null} to bind to it, overridable for testing.
+     */
+    protected TimerStateProvider getInProcessStateProvider() {
+        return TimerService.getInProcessStateProvider();
+    }
+
     /**
      * Opens the touch or voice menu iff all the conditions are satifisfied.
      */
     private void openMenu() {
         if (mAttachedToWindow && mTimer != null) {
+            if (mCreateNanos != 0) {
+                TimerMetrics.OPEN_MENU.record(System.nanoTime() - mCreateNanos);
+                mCreateNanos = 0;
+            }
             if (mFromLiveCardVoice) {
                 if (mPreparePanelCalled) {
                     // Invalidates the previously prepared voice menu now that we can properly
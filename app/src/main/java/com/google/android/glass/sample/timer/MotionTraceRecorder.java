@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.view.MotionEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records {@link MotionEvent} into a {@link MotionTrace}, and turns the events of a trace back
+ * into {@link MotionEvent} to replay them.
+ * <p>
+ * Recording reuses its buffers, so that recording an event allocates nothing once the trace
+ * has grown.
+ */
+public class MotionTraceRecorder {
+
+    private final MotionTrace mTrace = new MotionTrace();
+
+    private int[] mPointerIds = new int[0];
+    private float[] mXs = new float[0];
+    private float[] mYs = new float[0];
+
+    /** Appends the event to the trace. */
+    public void record(MotionEvent event) {
+        int pointerCount = event.getPointerCount();
+
+        if (pointerCount > mPointerIds.length) {
+            mPointerIds = new int[pointerCount];
+            mXs = new float[pointerCount];
+            mYs = new float[pointerCount];
+        }
+        for (int i = 0; i < pointerCount; ++i) {
+            mPointerIds[i] = event.getPointerId(i);
+            mXs[i] = event.getX(i);
+            mYs[i] = event.getY(i);
+        }
+        mTrace.add(event.getEventTime(), event.getDownTime(), event.getAction(), event.getSource(),
+                pointerCount, mPointerIds, mXs, mYs);
+    }
+
+    /** Returns the recorded trace. */
+    public MotionTrace getTrace() {
+        return mTrace;
+    }
+
+    /** Writes the recorded trace into {@code file} and clears it. */
+    public void save(File file) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+
+        try {
+            mTrace.writeTo(out);
+        } finally {
+            out.close();
+        }
+        mTrace.clear();
+    }
+
+    /**
+     * Returns a new {@link MotionEvent} for an event of the trace, whose times are shifted by
+     * {@code baseUptimeMillis}. The caller must recycle it.
+     */
+    public static MotionEvent obtainEvent(MotionTrace trace, int index, long baseUptimeMillis) {
+        int pointerCount = trace.getPointerCount(index);
+        MotionEvent.PointerProperties[] properties =
+                new MotionEvent.PointerProperties[pointerCount];
+        MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[pointerCount];
+
+        for (int i = 0; i < pointerCount; ++i) {
+            properties[i] = new MotionEvent.PointerProperties();
+            properties[i].id = trace.getPointerId(index, i);
+            properties[i].toolType = MotionEvent.TOOL_TYPE_FINGER;
+            coords[i] = new MotionEvent.PointerCoords();
+            coords[i].x = trace.getX(index, i);
+            coords[i].y = trace.getY(index, i);
+            coords[i].pressure = 1;
+            coords[i].size = 1;
+        }
+        return MotionEvent.obtain(baseUptimeMillis + trace.getDownTimeMillis(index),
+                baseUptimeMillis + trace.getEventTimeMillis(index), trace.getAction(index),
+                pointerCount, properties, coords, 0, 0, 1, 1, 0, 0, trace.getSource(index), 0);
+    }
+}
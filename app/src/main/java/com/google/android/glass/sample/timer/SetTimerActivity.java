@@ -23,14 +23,14 @@ import com.google.android.glass.touchpad.GestureDetector.BaseListener;
 import com.google.android.glass.touchpad.GestureDetector.FingerListener;
 import com.google.android.glass.touchpad.GestureDetector.ScrollListener;
 
-import android.animation.ValueAnimator;
-import android.animation.ValueAnimator.AnimatorUpdateListener;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.media.AudioManager;
 import android.os.Bundle;
-import android.view.animation.DecelerateInterpolator;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
@@ -38,6 +38,8 @@ import android.view.MotionEvent;
 import android.view.View;
 import android.widget.TextView;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -50,26 +52,56 @@ public class SetTimerActivity extends Activity implements BaseListener, ScrollLi
 
     public static final String EXTRA_START_TIMER = "extra_start_timer";
 
-    /** Maximum velocity when dragging. */
-    private static final float MAX_DRAG_VELOCITY = 1;
+    /**
+     * Directory, relative to the files directory, holding the recorded motion traces, visible for
+     * testing.
+     */
+    static final String GESTURE_TRACE_DIRECTORY = "gestures";
 
-    /** Deceleration constant for physics simulation. */
-    private static final float DECELERATION_CONSTANT = 0.2f;
+    private static final String TAG = SetTimerActivity.class.getSimpleName();
 
-    /** Minimum velocity to start the inertial scrolling. */
-    private static final float FLING_VELOCITY_CUTOFF = 1;
+    /** Maximum velocity when dragging. */
+    private static final float MAX_DRAG_VELOCITY = 1;
 
-    /** Exagerate the time it takes to slow down the inertial scrolling. */
-    private static final float TIME_LENGTHENING = 12;
+    /**
+     * Minimum delay between two {@link Sounds#TAP}, closer ones blending into a buzz rather than
+     * being heard as separate ticks.
+     */
+    private static final long MIN_TAP_SOUND_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
 
     /** Max timer value of 24:59:00. */
     private static final long MAX_TIME_SECONDS = TimeUnit.HOURS.toSeconds(24)
             + TimeUnit.MINUTES.toSeconds(59);
 
-    /** Animator for inertial scroll. */
-    private ValueAnimator mInertialScrollAnimator;
+    /** Inertial scroll, settling on whole minutes. */
+    private final FlingIntegrator mFling = new FlingIntegrator(TimeUnit.MINUTES.toSeconds(1));
+    private final FrameCallback mFlingFrameCallback = new FrameCallback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            setTimeSeconds(mFling.advanceTo(frameTimeNanos), frameTimeNanos);
+            if (mFling.isRunning()) {
+                postFrameCallback(this);
+            }
+        }
+    };
     private float mReleaseVelocity;
 
+    /** Scrolled seconds not applied yet, applied once per display frame. */
+    private float mPendingScrollSeconds;
+    private boolean mScrollFramePending;
+    private final FrameCallback mScrollFrameCallback = new FrameCallback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mScrollFramePending = false;
+            applyPendingScroll(frameTimeNanos);
+        }
+    };
+
+    /** Earliest time of the next {@link Sounds#TAP}. */
+    private long mNextTapSoundNanos = Long.MIN_VALUE;
+
     private float mTimeSeconds = 0;
 
     private TextView mHoursView;
@@ -77,8 +109,14 @@ public class SetTimerActivity extends Activity implements BaseListener, ScrollLi
     private TextView mSecondsView;
     private TextView mTipView;
 
+    /** Buffers owned by the time component views, reused on every update. */
+    private final char[] mHoursText = new char[TimeFormatter.BUFFER_SIZE];
+    private final char[] mMinutesText = new char[TimeFormatter.BUFFER_SIZE];
+
     private AudioManager mAudioManager;
     private GestureDetector mDetector;
+    /** Recorder of the touchpad events, {@code null} unless enabled by the configuration. */
+    private MotionTraceRecorder mGestureRecorder;
 
     // Options menu flags.
     private boolean mShouldFinish;
@@ -96,6 +134,9 @@ public class SetTimerActivity extends Activity implements BaseListener, ScrollLi
                 .setScrollListener(this);
 
         mAudioManager = (AudioManager) getSystemService(Context.AUDIO_SERVICE);
+        if (getResources().getBoolean(R.bool.config_record_gestures)) {
+            mGestureRecorder = new MotionTraceRecorder();
+        }
 
         // Initialize the various views.
         setContentView(R.layout.card_timer);
@@ -108,23 +149,16 @@ public class SetTimerActivity extends Activity implements BaseListener, ScrollLi
         mSecondsView.setText("00");
         mTipView.setText(getResources().getString(R.string.swipe_to_set_timer));
         updateText();
-
-        // Initialize the animator use for the intertial scrolling.
-        mInertialScrollAnimator = new ValueAnimator();
-        mInertialScrollAnimator.setInterpolator(new DecelerateInterpolator());
-        mInertialScrollAnimator.addUpdateListener(new AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float value = (Float) animation.getAnimatedValue();
-                setTimeSeconds(value);
-            }
-        });
     }
 
     @Override
     public void onPause() {
         super.onPause();
-        mInertialScrollAnimator.cancel();
+        flushPendingScroll();
+        cancelFling();
+        if (mGestureRecorder != null && mGestureRecorder.getTrace().size() > 0) {
+            saveGestures();
+        }
     }
 
     @Override
@@ -171,6 +205,9 @@ public class SetTimerActivity extends Activity implements BaseListener, ScrollLi
 
     @Override
     public boolean onGenericMotionEvent(MotionEvent event) {
+        if (mGestureRecorder != null) {
+            mGestureRecorder.record(event);
+        }
         return mDetector.onMotionEvent(event);
     }
 
@@ -178,23 +215,15 @@ public class SetTimerActivity extends Activity implements BaseListener, ScrollLi
     public void onFingerCountChanged(int previousCount, int currentCount) {
         boolean wentDown = currentCount > previousCount;
 
+        cancelFling();
+        // The fling starts from the position of the last scroll.
+        flushPendingScroll();
         if (currentCount == 0 && !wentDown && !mOptionMenuOpen) {
-            // Only fling if the velocity is greater than the cutoff
-            if (Math.abs(mReleaseVelocity) > FLING_VELOCITY_CUTOFF) {
-                // Deceleration always in the opposite direction of the velocity
-                final float deceleration = Math.signum(mReleaseVelocity) * -DECELERATION_CONSTANT;
-                final float flingTime = -mReleaseVelocity / deceleration * TIME_LENGTHENING;
-                float totalDelta = mReleaseVelocity * mReleaseVelocity / 2f / -deceleration;
-
-                // Start the animation
-                mInertialScrollAnimator.cancel();
-                mInertialScrollAnimator.setFloatValues(
-                        mTimeSeconds, confineTimeSeconds(mTimeSeconds + totalDelta));
-                mInertialScrollAnimator.setDuration((long) flingTime);
-                mInertialScrollAnimator.start();
+            // Frame times are based on System.nanoTime().
+            if (mFling.start(mTimeSeconds, mReleaseVelocity, 0, MAX_TIME_SECONDS,
+                    System.nanoTime())) {
+                postFrameCallback(mFlingFrameCallback);
             }
-        } else {
-            mInertialScrollAnimator.cancel();
         }
     }
 
@@ -202,7 +231,12 @@ public class SetTimerActivity extends Activity implements BaseListener, ScrollLi
     public boolean onScroll(float displacement, float delta, float velocity) {
         mReleaseVelocity = velocity;
         if (!mOptionMenuOpen) {
-            addTimeSeconds(delta * Math.min(Math.abs(velocity), MAX_DRAG_VELOCITY));
+            // Touchpad events can be reported several times per frame: only apply their sum once.
+            mPendingScrollSeconds += delta * Math.min(Math.abs(velocity), MAX_DRAG_VELOCITY);
+            if (!mScrollFramePending) {
+                mScrollFramePending = true;
+                postFrameCallback(mScrollFrameCallback);
+            }
         }
         return true;
     }
@@ -211,6 +245,7 @@ public class SetTimerActivity extends Activity implements BaseListener, ScrollLi
     public boolean onGesture(Gesture gesture) {
         switch (gesture) {
             case TAP:
+                flushPendingScroll();
                 long timeMinutes = TimeUnit.SECONDS.toMinutes((long) mTimeSeconds);
 
                 if (timeMinutes > 0) {
@@ -252,20 +287,52 @@ public class SetTimerActivity extends Activity implements BaseListener, ScrollLi
         setResultInternal(RESULT_OK, resultIntent);
     }
 
-    /** Adds {@code delta} seconds to the Timer.*/
-    private void addTimeSeconds(float delta) {
-        setTimeSeconds(mTimeSeconds + delta);
+    /** Saves the recorded touchpad events into a new motion trace. */
+    private void saveGestures() {
+        File directory = new File(getFilesDir(), GESTURE_TRACE_DIRECTORY);
+        File file = new File(directory, "set_timer_" + System.currentTimeMillis() + ".trace");
+
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Unable to create " + directory);
+            }
+            mGestureRecorder.save(file);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to save the gestures", e);
+        }
+    }
+
+    /** Applies the pending scroll right away rather than at the next display frame. */
+    private void flushPendingScroll() {
+        if (mScrollFramePending) {
+            mScrollFramePending = false;
+            removeFrameCallback(mScrollFrameCallback);
+        }
+        applyPendingScroll(System.nanoTime());
+    }
+
+    /** Adds the scrolled seconds to the Timer at {@code nowNanos}. */
+    private void applyPendingScroll(long nowNanos) {
+        if (mPendingScrollSeconds != 0) {
+            float delta = mPendingScrollSeconds;
+
+            mPendingScrollSeconds = 0;
+            setTimeSeconds(mTimeSeconds + delta, nowNanos);
+        }
     }
 
-    /** Sets the Timer value. */
-    private void setTimeSeconds(float timeSeconds) {
+    /** Sets the Timer value at {@code nowNanos}, based on {@link System#nanoTime()}. */
+    private void setTimeSeconds(float timeSeconds, long nowNanos) {
         float previousTimeSeconds = mTimeSeconds;
 
         mTimeSeconds = confineTimeSeconds(timeSeconds);
         if (TimeUnit.SECONDS.toMinutes((int) previousTimeSeconds)
             != TimeUnit.SECONDS.toMinutes((int) mTimeSeconds)) {
-            playSoundEffect(Sounds.TAP);
             updateText();
+            if (nowNanos >= mNextTapSoundNanos) {
+                playSoundEffect(Sounds.TAP);
+                mNextTapSoundNanos = nowNanos + MIN_TAP_SOUND_INTERVAL_NANOS;
+            }
         }
     }
 
@@ -274,8 +341,9 @@ public class SetTimerActivity extends Activity implements BaseListener, ScrollLi
         long hours = TimeUnit.SECONDS.toHours((int) mTimeSeconds);
         long minutes = TimeUnit.SECONDS.toMinutes((int) mTimeSeconds % TimeUnit.HOURS.toSeconds(1));
 
-        mHoursView.setText(String.format("%02d", hours));
-        mMinutesView.setText(String.format("%02d", minutes));
+        mHoursView.setText(mHoursText, 0, TimeFormatter.formatTwoDigits(hours, mHoursText));
+        mMinutesView.setText(
+                mMinutesText, 0, TimeFormatter.formatTwoDigits(minutes, mMinutesText));
         if (hours == 0 && minutes == 0) {
             mTipView.setVisibility(View.VISIBLE);
         } else {
@@ -283,6 +351,12 @@ public class SetTimerActivity extends Activity implements BaseListener, ScrollLi
         }
     }
 
+    /** Stops the inertial scrolling where it is. */
+    private void cancelFling() {
+        mFling.cancel();
+        removeFrameCallback(mFlingFrameCallback);
+    }
+
     /**
      * Keeps the time between 0 and {@link MAX_TIME_SECONDS}.
      */
@@ -302,6 +376,21 @@ public class SetTimerActivity extends Activity implements BaseListener, ScrollLi
         mAudioManager.playSoundEffect(soundId);
     }
 
+    /**
+     * Runs the {@link FrameCallback} at the next display frame, overridable for testing.
+     */
+    protected void postFrameCallback(FrameCallback callback) {
+        Choreographer.getInstance().postFrameCallback(callback);
+    }
+
+    /**
+     * Removes a {@link FrameCallback} posted with {@link #postFrameCallback(FrameCallback)},
+     * overridable for testing.
+     */
+    protected void removeFrameCallback(FrameCallback callback) {
+        Choreographer.getInstance().removeFrameCallback(callback);
+    }
+
     /**
      * Sets the {@link Activity} result, overridable for testing.
      */
@@ -314,8 +403,9 @@ public class SetTimerActivity extends Activity implements BaseListener, ScrollLi
      * This method must be called from same thread that performs the animation.
      */
     void forceEndAnimation() {
-        if (mInertialScrollAnimator.isRunning()) {
-            mInertialScrollAnimator.end();
+        if (mFling.isRunning()) {
+            removeFrameCallback(mFlingFrameCallback);
+            setTimeSeconds(mFling.finish(), System.nanoTime());
         }
     }
 
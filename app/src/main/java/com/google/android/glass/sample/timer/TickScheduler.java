@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TickDispatcher} delivering the ticks of all its subscribed {@link TickListener} from a
+ * single {@link Handler} callback on the main thread, in the {@link SystemClock#uptimeMillis()}
+ * time base. The lateness of each tick is recorded in {@link TimerMetrics#TICK_LATENESS}.
+ */
+public class TickScheduler extends TickDispatcher {
+
+    private final Handler mHandler = new Handler();
+
+    @Override
+    protected void onTickDispatched(long latenessMillis) {
+        TimerMetrics.TICK_LATENESS.record(TimeUnit.MILLISECONDS.toNanos(latenessMillis));
+    }
+
+    /**
+     * Posts a {@link Runnable} at the given uptime, overridable for testing.
+     */
+    @Override
+    protected void postAtTime(Runnable runnable, long uptimeMillis) {
+        mHandler.postAtTime(runnable, uptimeMillis);
+    }
+
+    /**
+     * Removes a posted {@link Runnable}, overridable for testing.
+     */
+    @Override
+    protected void removeCallbacks(Runnable runnable) {
+        mHandler.removeCallbacks(runnable);
+    }
+
+    @Override
+    protected final long nowMillis() {
+        return uptimeMillis();
+    }
+
+    /**
+     * Returns {@link SystemClock#uptimeMillis()}, overridable for testing.
+     */
+    protected long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.widget.TextView;
+
+/**
+ * Fixed size {@link TextView} displaying a time component: setting its digits never requests a
+ * layout pass, its dimensions being set by the layout and not by its text.
+ */
+public class TimeComponentView extends TextView {
+
+    private boolean mSettingDigits;
+
+    public TimeComponentView(Context context) {
+        this(context, null);
+    }
+
+    public TimeComponentView(Context context, AttributeSet attrs) {
+        this(context, attrs, android.R.attr.textViewStyle);
+    }
+
+    public TimeComponentView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+    }
+
+    /** Sets the first {@code length} characters of {@code digits} as the text, without layout. */
+    public void setDigits(char[] digits, int length) {
+        mSettingDigits = true;
+        try {
+            setText(digits, 0, length);
+        } finally {
+            mSettingDigits = false;
+        }
+    }
+
+    @Override
+    public void requestLayout() {
+        // The text is only redrawn, the dimensions of the view can't depend on it.
+        if (!mSettingDigits) {
+            super.requestLayout();
+        }
+    }
+}
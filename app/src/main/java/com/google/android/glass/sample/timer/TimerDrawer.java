@@ -17,21 +17,78 @@
 package com.google.android.glass.sample.timer;
 
 import com.google.android.glass.timeline.DirectRenderingCallback;
+import com.google.android.glass.timeline.LiveCard.PublishMode;
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.SurfaceHolder;
 import android.view.View;
 
 /**
  * SurfaceHolder.Callback used to draw the timer on the timeline {@link LiveCard}.
+ * <p>
+ * A drawer created for a {@link Timer} only inflates its {@link TimerView} when its surface is
+ * created and releases it when the surface is destroyed: an offscreen card only keeps its
+ * {@link Timer}, whose expiry is then driven by a {@link TimerExpiryAlarm}.
  */
 public class TimerDrawer implements DirectRenderingCallback {
 
+    /** Delay for the surface of a revealed card to appear before relying on the expiry alarm. */
+    // Visible for testing.
+    static final long SURFACE_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * Guards the surface and the glyph atlas, used by the {@link TimerRenderThread} while drawing
+     * a frame and only replaced by the main thread when the surface changes.
+     */
+    private final Object mSurfaceLock = new Object();
     private SurfaceHolder mHolder;
     private boolean mRenderingPaused;
+    /** Whether or not the next frame must repaint the whole surface. */
+    private boolean mFullRedraw = true;
+    private final Rect mDirtyRect = new Rect();
+    /** Renderer of the laid out view, {@code null} until the surface dimensions are known. */
+    private TimerGlyphAtlas mGlyphAtlas;
+    /** Surface dimensions of the last layout pass, layout being skipped while they don't change. */
+    private int mLaidOutWidth = -1;
+    private int mLaidOutHeight = -1;
+
+    private final Context mContext;
+    private final Timer mTimer;
+    private final TickScheduler mTickScheduler;
+    private final TimerExpiryAlarm mExpiryAlarm;
+    /** Whether or not the view lives only while the surface exists. */
+    private final boolean mLazyView;
+    private final Handler mHandler;
+    /** Whether or not the expiry of the {@link Timer} is driven by the alarm, without a view. */
+    private boolean mOffscreen;
+
+    private TimerView mView;
+    /** Pool the lazily inflated view is taken from and returned to, if any. */
+    private TimerViewPool mViewPool;
+
+    /** Thread drawing the frames the atlas supports, {@code null} to draw on the main thread. */
+    private TimerRenderThread mRenderThread;
+    /** Latest frame not yet drawn by the render thread, guarded by {@link #mFrameLock}. */
+    private final Object mFrameLock = new Object();
+    private final TimerGlyphAtlas.Frame mPendingFrame = new TimerGlyphAtlas.Frame();
+    private final Rect mPendingDirtyRect = new Rect();
+    private boolean mPendingFullRedraw;
+    private boolean mFramePosted;
+    /** Frame being drawn by the render thread, only accessed from it. */
+    private final TimerGlyphAtlas.Frame mRenderFrame = new TimerGlyphAtlas.Frame();
+    private final Rect mRenderDirtyRect = new Rect();
+    private final Runnable mRenderRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            renderPendingFrame();
+        }
+    };
 
-    private final TimerView mView;
     private final TimerView.ChangeListener mListener = new TimerView.ChangeListener() {
 
         @Override
@@ -42,29 +99,148 @@ public class TimerDrawer implements DirectRenderingCallback {
         }
     };
 
-    public TimerDrawer(Context context, Timer timer) {
-        mView = new TimerView(context);
-        mView.setTimer(timer);
-        mView.setListener(mListener);
+    /** Sets the expiry alarm of the running {@link Timer} while it has no view. */
+    private final Timer.TimerListener mOffscreenListener = new Timer.TimerListener() {
+
+        @Override
+        public void onStart() {
+            mExpiryAlarm.set(mTimer);
+        }
+
+        @Override
+        public void onPause() {
+            mExpiryAlarm.cancel(mTimer);
+        }
+
+        @Override
+        public void onReset() {
+            // Nothing to do here.
+        }
+    };
+
+    private final Runnable mSurfaceTimeoutRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            if (mView == null && !mOffscreen) {
+                goOffscreen();
+            }
+        }
+    };
+
+    public TimerDrawer(Context context, Timer timer, TickScheduler tickScheduler) {
+        mContext = context;
+        mTimer = timer;
+        mTickScheduler = tickScheduler;
+        mExpiryAlarm = new TimerExpiryAlarm(context);
+        mLazyView = true;
+        mHandler = new Handler(Looper.getMainLooper());
     }
 
+    /** Creates a drawer of {@code view}, kept for the whole lifetime of the drawer. */
     public TimerDrawer(TimerView view) {
+        mContext = null;
+        mTimer = null;
+        mTickScheduler = null;
+        mExpiryAlarm = null;
+        mLazyView = false;
+        mHandler = null;
         mView = view;
         mView.setListener(mListener);
     }
 
     public Timer getTimer() {
-        return mView.getTimer();
+        return mLazyView ? mTimer : mView.getTimer();
+    }
+
+    /** Returns the {@link TimerView}, {@code null} until inflated, visible for testing. */
+    TimerView getView() {
+        return mView;
+    }
+
+    /** Returns whether or not the expiry is driven by the alarm, visible for testing. */
+    boolean isOffscreen() {
+        return mOffscreen;
+    }
+
+    /**
+     * Notifies the drawer that its card was published. A card published silently has no surface
+     * until the user navigates to it, so its expiry alarm is set right away; a revealed card only
+     * falls back to it if its surface did not appear within {@link #SURFACE_TIMEOUT_MILLIS}.
+     */
+    public void onPublished(PublishMode publishMode) {
+        if (!mLazyView || mView != null) {
+            return;
+        }
+        if (publishMode == PublishMode.SILENT) {
+            goOffscreen();
+        } else {
+            mHandler.postDelayed(mSurfaceTimeoutRunnable, SURFACE_TIMEOUT_MILLIS);
+        }
+    }
+
+    /**
+     * Sets the {@link TimerRenderThread} drawing the frames of this drawer, typically shared by all
+     * the drawers, or {@code null} to draw them on the main thread. Frames requested faster than
+     * the render thread draws them are coalesced into the latest one.
+     */
+    public void setRenderThread(TimerRenderThread renderThread) {
+        mRenderThread = renderThread;
+    }
+
+    /** Returns the {@link TimerRenderThread} drawing the frames, visible for testing. */
+    TimerRenderThread getRenderThread() {
+        return mRenderThread;
+    }
+
+    /**
+     * Sets the {@link TimerViewPool} providing the view when the surface is created and taking it
+     * back when the surface is destroyed, or {@code null} to inflate and release it every time.
+     */
+    public void setViewPool(TimerViewPool viewPool) {
+        mViewPool = viewPool;
+    }
+
+    /** Releases the resources held by the underlying {@link TimerView}. */
+    public void release() {
+        if (!mLazyView) {
+            mView.release();
+            recycleGlyphAtlas();
+            return;
+        }
+        mHandler.removeCallbacks(mSurfaceTimeoutRunnable);
+        if (mView != null) {
+            detachView();
+        } else if (mOffscreen) {
+            mTimer.removeListener(mOffscreenListener);
+            mOffscreen = false;
+        }
+        mExpiryAlarm.cancel(mTimer);
     }
 
     @Override
     public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
-        // Measure and layout the view with the canvas dimensions.
-        int measuredWidth = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
-        int measuredHeight = View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY);
+        if (mView == null) {
+            inflateView();
+        }
+        // Only measure and layout the view when the canvas dimensions or the view changed.
+        if (width != mLaidOutWidth || height != mLaidOutHeight || mView.isLayoutRequested()) {
+            int measuredWidth = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
+            int measuredHeight =
+                    View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY);
 
-        mView.measure(measuredWidth, measuredHeight);
-        mView.layout(0, 0, mView.getMeasuredWidth(), mView.getMeasuredHeight());
+            mView.measure(measuredWidth, measuredHeight);
+            mView.layout(0, 0, mView.getMeasuredWidth(), mView.getMeasuredHeight());
+            mLaidOutWidth = width;
+            mLaidOutHeight = height;
+
+            TimerGlyphAtlas glyphAtlas = new TimerGlyphAtlas(mView);
+            synchronized (mSurfaceLock) {
+                recycleGlyphAtlas();
+                mGlyphAtlas = glyphAtlas;
+            }
+        }
+        mFullRedraw = true;
         draw();
     }
 
@@ -72,32 +248,196 @@ public class TimerDrawer implements DirectRenderingCallback {
     public void surfaceCreated(SurfaceHolder holder) {
         // The creation of a new Surface implicitly resumes the rendering.
         mRenderingPaused = false;
-        mHolder = holder;
+        synchronized (mSurfaceLock) {
+            mHolder = holder;
+        }
+        if (mView == null) {
+            inflateView();
+        }
+        mView.setHidden(false);
+        mFullRedraw = true;
         draw();
     }
 
     @Override
     public void surfaceDestroyed(SurfaceHolder holder) {
-        mHolder = null;
+        // Waits for the frame being drawn by the render thread, if any.
+        synchronized (mSurfaceLock) {
+            mHolder = null;
+        }
+        if (!mLazyView) {
+            mView.setHidden(true);
+        } else if (mView != null) {
+            releaseView();
+        }
     }
 
     @Override
     public void renderingPaused(SurfaceHolder holder, boolean paused) {
         mRenderingPaused = paused;
+        // Nobody sees the ticks of a paused card, its expiry is driven by an alarm instead.
+        if (mView != null) {
+            mView.setHidden(paused);
+        }
+        if (!paused) {
+            // Changes that happened while paused were not drawn.
+            mFullRedraw = true;
+        }
         draw();
     }
 
+    /**
+     * Draws the {@link TimerView}, repainting only the components that changed since the last
+     * frame unless the whole surface needs to be repainted.
+     */
     public void draw() {
-        if (!mRenderingPaused && mHolder != null) {
+        if (!mRenderingPaused && mHolder != null && mView != null) {
+            boolean fullRedraw = mFullRedraw || !mView.getDirtyRect(mDirtyRect);
+            boolean drawn;
+
+            if (mRenderThread != null) {
+                drawn = postFrame(fullRedraw);
+            } else {
+                drawn = drawFrame(fullRedraw);
+            }
+            if (drawn) {
+                mView.clearDirty();
+                mFullRedraw = false;
+            }
+        }
+    }
+
+    /**
+     * Hands the frame over to the render thread, or draws it right away if the atlas does not
+     * support it, and returns whether or not it will be drawn.
+     */
+    private boolean postFrame(boolean fullRedraw) {
+        boolean renderable;
+
+        synchronized (mFrameLock) {
+            mPendingFrame.set(mView);
+            // The atlas is only replaced from the main thread.
+            renderable = mGlyphAtlas != null && mGlyphAtlas.canDraw(mPendingFrame);
+            if (renderable) {
+                if (fullRedraw) {
+                    mPendingFullRedraw = true;
+                } else {
+                    mPendingDirtyRect.union(mDirtyRect);
+                }
+                if (!mFramePosted) {
+                    mFramePosted = true;
+                    mRenderThread.post(mRenderRunnable);
+                }
+            }
+        }
+        // A frame still pending on the render thread is skipped, having become unsupported; the
+        // surface is repainted as a whole since the render thread may have drawn a region of it.
+        return renderable || drawFrame(true);
+    }
+
+    /** Draws the frame on the calling thread and returns whether or not it could. */
+    private boolean drawFrame(boolean fullRedraw) {
+        synchronized (mSurfaceLock) {
+            long startNanos = System.nanoTime();
+            Canvas canvas;
+            try {
+                canvas = fullRedraw ? mHolder.lockCanvas() : mHolder.lockCanvas(mDirtyRect);
+            } catch (Exception e) {
+                return false;
+            }
+            if (canvas == null) {
+                return false;
+            }
+            // The canvas is clipped to the dirty region, if any.
+            if (mGlyphAtlas == null || !mGlyphAtlas.draw(canvas, mView)) {
+                mView.draw(canvas);
+            }
+            mHolder.unlockCanvasAndPost(canvas);
+            TimerMetrics.DRAW.record(System.nanoTime() - startNanos);
+            return true;
+        }
+    }
+
+    /** Draws the latest posted frame, called on the render thread. */
+    private void renderPendingFrame() {
+        synchronized (mSurfaceLock) {
+            boolean fullRedraw;
+
+            synchronized (mFrameLock) {
+                mFramePosted = false;
+                mRenderFrame.set(mPendingFrame);
+                fullRedraw = mPendingFullRedraw || mPendingDirtyRect.isEmpty();
+                mRenderDirtyRect.set(mPendingDirtyRect);
+                mPendingFullRedraw = false;
+                mPendingDirtyRect.setEmpty();
+            }
+            if (mHolder == null || mGlyphAtlas == null || !mGlyphAtlas.canDraw(mRenderFrame)) {
+                // The surface was destroyed or the main thread draws the frame instead.
+                return;
+            }
+            long startNanos = System.nanoTime();
             Canvas canvas;
             try {
-                canvas = mHolder.lockCanvas();
+                canvas = fullRedraw ? mHolder.lockCanvas() : mHolder.lockCanvas(mRenderDirtyRect);
             } catch (Exception e) {
                 return;
             }
             if (canvas != null) {
-                mView.draw(canvas);
+                mGlyphAtlas.draw(canvas, mRenderFrame);
                 mHolder.unlockCanvasAndPost(canvas);
+                TimerMetrics.DRAW.record(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    /** Inflates the {@link TimerView} of the {@link Timer}, which takes over its expiry alarm. */
+    private void inflateView() {
+        mHandler.removeCallbacks(mSurfaceTimeoutRunnable);
+        if (mOffscreen) {
+            mTimer.removeListener(mOffscreenListener);
+            mExpiryAlarm.cancel(mTimer);
+            mOffscreen = false;
+        }
+        mView = mViewPool != null ? mViewPool.acquire() : new TimerView(mContext);
+        mView.setExpiryAlarm(mExpiryAlarm);
+        mView.setTickScheduler(mTickScheduler);
+        mView.setTimer(mTimer);
+        mView.setListener(mListener);
+    }
+
+    /** Releases the {@link TimerView}, only keeping the expiry alarm of the {@link Timer}. */
+    private void releaseView() {
+        detachView();
+        goOffscreen();
+    }
+
+    /** Drives the expiry of the {@link Timer} by its alarm while the card has no surface. */
+    private void goOffscreen() {
+        mOffscreen = true;
+        mTimer.addListener(mOffscreenListener);
+        if (mTimer.isRunning()) {
+            mExpiryAlarm.set(mTimer);
+        }
+    }
+
+    /** Returns the {@link TimerView} to the pool, if any, or releases it. */
+    private void detachView() {
+        if (mViewPool != null) {
+            mViewPool.recycle(mView);
+        } else {
+            mView.release();
+        }
+        mView = null;
+        recycleGlyphAtlas();
+        mLaidOutWidth = -1;
+        mLaidOutHeight = -1;
+    }
+
+    private void recycleGlyphAtlas() {
+        synchronized (mSurfaceLock) {
+            if (mGlyphAtlas != null) {
+                mGlyphAtlas.recycle();
+                mGlyphAtlas = null;
             }
         }
     }
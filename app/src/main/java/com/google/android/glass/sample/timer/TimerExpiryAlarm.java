@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.SystemClock;
+
+/**
+ * Single {@link AlarmManager} wakeup at the deadline of a {@link Timer} whose card is not visible,
+ * delivered to the {@link TimerService} as {@link TimerService#ACTION_EXPIRE}.
+ * <p>
+ * Alarms are keyed by {@link Timer#getId()}, which the {@link TimerJournal} restores when the
+ * timers are recovered after a process restart, so that a pending alarm still wakes up its timer.
+ */
+public class TimerExpiryAlarm {
+
+    private final Context mContext;
+
+    public TimerExpiryAlarm(Context context) {
+        mContext = context;
+    }
+
+    /** Sets the alarm at the deadline of the {@link Timer}, if it is not already expired. */
+    public void set(Timer timer) {
+        long remainingTimeMillis = timer.getRemainingTimeMillis();
+
+        if (remainingTimeMillis > 0) {
+            setAlarm(timer.getId(), elapsedRealtime() + remainingTimeMillis);
+        }
+    }
+
+    /** Cancels the alarm of the {@link Timer}, if any. */
+    public void cancel(Timer timer) {
+        cancelAlarm(timer.getId());
+    }
+
+    /**
+     * Sets a wakeup alarm at {@code triggerAtMillis} in the elapsed realtime base, overridable for
+     * testing.
+     */
+    protected void setAlarm(long timerId, long triggerAtMillis) {
+        PendingIntent operation = PendingIntent.getService(
+                mContext, 0, newExpireIntent(timerId), PendingIntent.FLAG_UPDATE_CURRENT);
+
+        getAlarmManager().setExact(
+                AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAtMillis, operation);
+    }
+
+    /** Cancels the alarm of the timer identified by {@code timerId}, overridable for testing. */
+    protected void cancelAlarm(long timerId) {
+        PendingIntent operation = PendingIntent.getService(
+                mContext, 0, newExpireIntent(timerId), PendingIntent.FLAG_NO_CREATE);
+
+        if (operation != null) {
+            getAlarmManager().cancel(operation);
+            operation.cancel();
+        }
+    }
+
+    /** Returns the current elapsed realtime in milliseconds, overridable for testing. */
+    protected long elapsedRealtime() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    private Intent newExpireIntent(long timerId) {
+        Intent intent = new Intent(mContext, TimerService.class);
+
+        intent.setAction(TimerService.ACTION_EXPIRE);
+        // The data makes the PendingIntent unique to the timer.
+        intent.setData(Uri.parse("glass.timer:" + timerId));
+        intent.putExtra(TimerService.EXTRA_TIMER_ID, timerId);
+        return intent;
+    }
+
+    private AlarmManager getAlarmManager() {
+        return (AlarmManager) mContext.getSystemService(Context.ALARM_SERVICE);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.view.View;
+import android.widget.TextView;
+
+/**
+ * Direct renderer of a laid out {@link TimerView}, blitting the digits, colons and tip rasterized
+ * once into a bitmap atlas instead of drawing the view hierarchy on every frame.
+ * <p>
+ * The digits are rasterized, in white and in red, with the paint and at the baseline of the time
+ * component {@code TextView}, whose font has tabular digits, so that blitting them at the position
+ * of each character matches the view-based rendering. The colons and the tip are not tinted by the
+ * {@link TimerView} and only rasterized once.
+ * <p>
+ * Once constructed, the atlas no longer touches the views: a {@link Frame} captured from the view
+ * can be drawn from any thread, one at a time.
+ */
+public class TimerGlyphAtlas {
+
+    /**
+     * Snapshot of the displayed state of a {@link TimerView}.
+     */
+    public static final class Frame {
+        long mHours;
+        long mMinutes;
+        long mSeconds;
+        int mTextColor;
+        boolean mTipVisible;
+
+        /** Captures the displayed state of the {@link TimerView}. */
+        public void set(TimerView view) {
+            mHours = view.getHours();
+            mMinutes = view.getMinutes();
+            mSeconds = view.getSeconds();
+            mTextColor = view.getTextColor();
+            mTipVisible = view.isTipVisible();
+        }
+
+        /** Copies another {@link Frame}. */
+        public void set(Frame frame) {
+            mHours = frame.mHours;
+            mMinutes = frame.mMinutes;
+            mSeconds = frame.mSeconds;
+            mTextColor = frame.mTextColor;
+            mTipVisible = frame.mTipVisible;
+        }
+    }
+
+    private static final int DIGITS = 10;
+    private static final int COMPONENTS = 3;
+    private static final int ROW_WHITE = 0;
+    private static final int ROW_RED = 1;
+
+    private final Bitmap mAtlas;
+    private final int mWhiteColor;
+    private final int mRedColor;
+    private final int mBackgroundColor;
+
+    private final int mCellWidth;
+    private final int mCellHeight;
+    /** Horizontal margin around each digit, for glyphs overhanging their advance. */
+    private final int mCellMargin;
+    /** Left of the atlas cell of each digit of each time component, in view coordinates. */
+    private final int[] mDigitLeft = new int[COMPONENTS * 2];
+    /** Top of each time component, in view coordinates. */
+    private final int[] mComponentTop = new int[COMPONENTS];
+
+    private final Rect mColonCell = new Rect();
+    private final Rect mHoursColonBounds = new Rect();
+    private final Rect mMinutesColonBounds = new Rect();
+
+    private final Rect mTipCell = new Rect();
+    private final Rect mTipBounds = new Rect();
+    /** Frame of the {@link TimerView} drawn by {@link #draw(Canvas, TimerView)}. */
+    private final Frame mViewFrame = new Frame();
+
+    private final Rect mSource = new Rect();
+    private final Rect mDestination = new Rect();
+
+    /** Rasterizes the glyphs of {@code view}, which must have been measured and laid out. */
+    public TimerGlyphAtlas(TimerView view) {
+        TextView[] componentViews = {
+            (TextView) view.findViewById(R.id.hours),
+            (TextView) view.findViewById(R.id.minutes),
+            (TextView) view.findViewById(R.id.seconds)
+        };
+        View hoursColonView = view.findViewById(R.id.hours_colon);
+        TextView hoursView = componentViews[0];
+        Layout layout = hoursView.getLayout();
+        TextPaint paint = new TextPaint(hoursView.getPaint());
+
+        mWhiteColor = view.getResources().getColor(R.color.white);
+        mRedColor = view.getResources().getColor(R.color.red);
+        mBackgroundColor = view.getResources().getColor(R.color.black);
+        View tipView = view.findViewById(R.id.tip);
+
+        // Same vertical placement as TextView for a centered single line.
+        int boxHeight = hoursView.getHeight() - hoursView.getExtendedPaddingTop()
+                - hoursView.getExtendedPaddingBottom();
+        int verticalOffset = layout.getHeight() < boxHeight
+                ? (boxHeight - layout.getHeight()) >> 1 : 0;
+        int baseline =
+                hoursView.getExtendedPaddingTop() + verticalOffset + layout.getLineBaseline(0);
+        float advance = paint.measureText("0");
+        float textLeft = hoursView.getCompoundPaddingLeft()
+                + ((layout.getWidth() - (int) layout.getLineMax(0)) >> 1);
+
+        mCellMargin = (int) Math.ceil(paint.getTextSize() / 10);
+        mCellWidth = (int) Math.ceil(advance) + 2 * mCellMargin;
+        mCellHeight = hoursView.getHeight();
+
+        Rect bounds = new Rect();
+        for (int i = 0; i < COMPONENTS; ++i) {
+            view.getDescendantBounds(componentViews[i], bounds);
+            mComponentTop[i] = bounds.top;
+            for (int j = 0; j < 2; ++j) {
+                mDigitLeft[i * 2 + j] =
+                        bounds.left + Math.round(textLeft + j * advance) - mCellMargin;
+            }
+        }
+        view.getDescendantBounds(hoursColonView, mHoursColonBounds);
+        view.getDescendantBounds(view.findViewById(R.id.minutes_colon), mMinutesColonBounds);
+        view.getDescendantBounds(tipView, mTipBounds);
+
+        int colonLeft = DIGITS * mCellWidth;
+        mColonCell.set(colonLeft, 0, colonLeft + hoursColonView.getWidth(),
+                hoursColonView.getHeight());
+        mTipCell.set(mColonCell.right, 0, mColonCell.right + mTipBounds.width(),
+                mTipBounds.height());
+        mAtlas = Bitmap.createBitmap(mTipCell.right,
+                Math.max(2 * mCellHeight, Math.max(mColonCell.height(), mTipCell.height())),
+                Bitmap.Config.ARGB_8888);
+
+        Canvas canvas = new Canvas(mAtlas);
+        char[] digit = new char[1];
+        for (int row = ROW_WHITE; row <= ROW_RED; ++row) {
+            paint.setColor(row == ROW_WHITE ? mWhiteColor : mRedColor);
+            for (int i = 0; i < DIGITS; ++i) {
+                digit[0] = (char) ('0' + i);
+                canvas.drawText(digit, 0, 1, i * mCellWidth + mCellMargin,
+                        row * mCellHeight + baseline, paint);
+            }
+        }
+        canvas.save();
+        canvas.translate(mColonCell.left, mColonCell.top);
+        hoursColonView.draw(canvas);
+        canvas.restore();
+        // Drawn whatever its visibility, which is only checked by its parent.
+        canvas.translate(mTipCell.left, mTipCell.top);
+        tipView.draw(canvas);
+    }
+
+    /**
+     * Draws the current state of the {@link TimerView} and returns whether or not it could, see
+     * {@link #canDraw(Frame)}; the caller otherwise draws the view.
+     */
+    public boolean draw(Canvas canvas, TimerView view) {
+        mViewFrame.set(view);
+        return draw(canvas, mViewFrame);
+    }
+
+    /** Draws the {@link Frame} and returns whether or not it could, see {@link #canDraw(Frame)}. */
+    public boolean draw(Canvas canvas, Frame frame) {
+        if (!canDraw(frame)) {
+            return false;
+        }
+        int row = frame.mTextColor == mWhiteColor ? ROW_WHITE : ROW_RED;
+
+        canvas.drawColor(mBackgroundColor);
+        canvas.drawBitmap(mAtlas, mColonCell, mHoursColonBounds, null);
+        canvas.drawBitmap(mAtlas, mColonCell, mMinutesColonBounds, null);
+        drawComponent(canvas, 0, frame.mHours, row);
+        drawComponent(canvas, 1, frame.mMinutes, row);
+        drawComponent(canvas, 2, frame.mSeconds, row);
+        if (frame.mTipVisible) {
+            canvas.drawBitmap(mAtlas, mTipCell, mTipBounds, null);
+        }
+        return true;
+    }
+
+    /** Returns whether or not the {@link Frame} only has two digits components in white or red. */
+    public boolean canDraw(Frame frame) {
+        return (frame.mTextColor == mWhiteColor || frame.mTextColor == mRedColor)
+                && isTwoDigits(frame.mHours) && isTwoDigits(frame.mMinutes)
+                && isTwoDigits(frame.mSeconds);
+    }
+
+    /** Releases the atlas bitmap, the renderer can no longer draw afterwards. */
+    public void recycle() {
+        mAtlas.recycle();
+    }
+
+    private void drawComponent(Canvas canvas, int component, long value, int row) {
+        drawDigit(canvas, component * 2, (int) (value / 10), row, mComponentTop[component]);
+        drawDigit(canvas, component * 2 + 1, (int) (value % 10), row, mComponentTop[component]);
+    }
+
+    private void drawDigit(Canvas canvas, int position, int digit, int row, int top) {
+        mSource.set(digit * mCellWidth, row * mCellHeight, (digit + 1) * mCellWidth,
+                (row + 1) * mCellHeight);
+        mDestination.set(mDigitLeft[position], top, mDigitLeft[position] + mCellWidth,
+                top + mCellHeight);
+        canvas.drawBitmap(mAtlas, mSource, mDestination, null);
+    }
+
+    private static boolean isTwoDigits(long value) {
+        return value >= 0 && value < 100;
+    }
+}
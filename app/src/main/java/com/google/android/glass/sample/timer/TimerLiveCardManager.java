@@ -24,75 +24,308 @@ import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.os.Handler;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class to manage {@link LiveCard} for the {@link TimerService}.
  */
-public class TimerLiveCardManager {
+public class TimerLiveCardManager implements TimerStateProvider {
+
+    /** Maximum number of recycled {@link TimerView} kept for the next cards. */
+    private static final int VIEW_POOL_CAPACITY = 4;
+
+    /**
+     * {@link LiveCard}, {@link TimerDrawer} and journal recorder, if any, of a registered
+     * {@link Timer}.
+     */
+    private static class TimerCard {
+        private final LiveCard mLiveCard;
+        private final TimerDrawer mDrawer;
+        private final Timer.TimerListener mRecorder;
+
+        TimerCard(LiveCard liveCard, TimerDrawer drawer, Timer.TimerListener recorder) {
+            mLiveCard = liveCard;
+            mDrawer = drawer;
+            mRecorder = recorder;
+        }
+    }
 
     private final Context mContext;
-    private final HashMap<Timer, LiveCard> mTimers = new HashMap<Timer, LiveCard>();
+    private final TimerViewPool mViewPool;
+    private final TimerRegistry<TimerCard> mTimers = new TimerRegistry<TimerCard>();
+    private final Clock mClock = new ElapsedRealtimeClock();
+    /** Ticks shared by all the running timers. */
+    private final TickScheduler mTickScheduler = new TickScheduler();
+
+    private final Handler mHandler = new Handler();
+    private final Runnable mAdvanceRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            mExpiryTracker.advance();
+        }
+    };
+
+    /**
+     * Deadlines of all the running timers, advanced from the main thread while the device is awake;
+     * hidden cards also rely on their {@link TimerExpiryAlarm} to wake it up.
+     */
+    private final TimerExpiryTracker mExpiryTracker = new TimerExpiryTracker(mClock,
+            new TimerExpiryTracker.Callback() {
+
+        @Override
+        public void onNextDeadlineChanged(long deadlineMillis) {
+            mHandler.removeCallbacks(mAdvanceRunnable);
+            if (deadlineMillis != Long.MAX_VALUE) {
+                long delayMillis =
+                        deadlineMillis - TimeUnit.NANOSECONDS.toMillis(mClock.nanoTime());
+
+                mHandler.postDelayed(mAdvanceRunnable, Math.max(0, delayMillis));
+            }
+        }
+
+        @Override
+        public void onExpired(Timer timer) {
+            navigateToTimer(timer.getId());
+        }
+    });
+
+    private TimerJournal mJournal;
+    /**
+     * Keeps the shared sound loaded while timers are managed, their views being released when
+     * their cards are offscreen.
+     */
+    private TimerSoundPool.Handle mSoundHandle;
+    /** Thread drawing the cards published from now on, {@code null} for the main thread. */
+    private TimerRenderThread mRenderThread;
 
     public TimerLiveCardManager(Context context) {
         mContext = context;
+        mViewPool = new TimerViewPool(context, VIEW_POOL_CAPACITY);
     }
 
-    /** Starts a new {@link Timer}/{@link LiveCard} combination with the provided duration. */
-    public Timer startNewTimer(long durationMillis) {
-        Timer timer = new Timer(durationMillis);
-        TimerDrawer drawer = new TimerDrawer(mContext, timer);
-        LiveCard liveCard = new LiveCard(mContext, timer.toString());
+    /**
+     * Sets whether or not the cards published from now on are drawn on a background
+     * {@link TimerRenderThread} shared by all of them rather than on the main thread. Disabling it
+     * moves the drawing of all the cards back to the main thread.
+     */
+    public void setRenderThreadEnabled(boolean enabled) {
+        if (enabled && mRenderThread == null) {
+            mRenderThread = new TimerRenderThread();
+        } else if (!enabled && mRenderThread != null) {
+            // Frames posted after the thread quits would be dropped and the cards never redrawn.
+            for (Timer timer : mTimers.getTimers()) {
+                mTimers.get(timer.getId()).mDrawer.setRenderThread(null);
+            }
+            mRenderThread.quit();
+            mRenderThread = null;
+        }
+    }
 
-        liveCard.setDirectRenderingEnabled(true).getSurfaceHolder().addCallback(drawer);
-        liveCard.setVoiceActionEnabled(true);
+    /** Releases the resources shared by the cards, once they are all stopped. */
+    public void release() {
+        setRenderThreadEnabled(false);
+        mViewPool.clear();
+    }
 
-        Intent menuIntent = new Intent(mContext, MenuActivity.class);
-        menuIntent.setData(Uri.parse("glass.timer:" + timer.hashCode()));
-        menuIntent.putExtra(TimerService.EXTRA_TIMER_HASH_CODE, timer.hashCode());
-        liveCard.setAction(PendingIntent.getActivity(mContext, 0, menuIntent, 0));
-        if (mContext instanceof Service) {
-            liveCard.attach((Service) mContext);
+    /** Returns the {@link TimerViewPool} shared by the cards. */
+    public TimerViewPool getViewPool() {
+        return mViewPool;
+    }
+
+    /**
+     * Restores the {@link Timer} recovered from the {@link TimerJournal}, which then records the
+     * transitions of all the managed timers. Returns the number of restored timers.
+     */
+    public int restoreFrom(TimerJournal journal) {
+        List<Timer> timers = journal.recover(mClock, ElapsedRealtimeClock.getBootTimeMillis());
+
+        mJournal = journal;
+        for (Timer timer : timers) {
+            // Restored in the background, so don't jump over what the user is looking at.
+            publishTimer(timer, PublishMode.SILENT);
+            // Notify the restored state to start ticking or display the paused time.
+            if (timer.isRunning()) {
+                timer.start();
+            } else if (timer.isStarted()) {
+                timer.pause();
+            }
         }
-        liveCard.publish(PublishMode.REVEAL);
-        timer.start();
+        return timers.size();
+    }
 
-        mTimers.put(timer, liveCard);
+    /** Starts a new {@link Timer}/{@link LiveCard} combination with the provided duration. */
+    public Timer startNewTimer(long durationMillis) {
+        Timer timer = new Timer(mClock, durationMillis);
+
+        publishTimer(timer, PublishMode.REVEAL);
+        timer.start();
         return timer;
     }
 
+    /**
+     * Starts a new {@link Timer}/{@link LiveCard} combination per provided duration, in order,
+     * only revealing the last card. The timers are started together once all the cards are
+     * published, so that their ticks are aligned.
+     */
+    public List<Timer> startNewTimers(long[] durationsMillis) {
+        List<Timer> timers = new ArrayList<Timer>(durationsMillis.length);
+
+        for (int i = 0; i < durationsMillis.length; ++i) {
+            Timer timer = new Timer(mClock, durationsMillis[i]);
+
+            publishTimer(timer,
+                    i == durationsMillis.length - 1 ? PublishMode.REVEAL : PublishMode.SILENT);
+            timers.add(timer);
+        }
+        for (Timer timer : timers) {
+            timer.start();
+        }
+        return timers;
+    }
+
     /**
      * Stops the {@link Timer}/{@link LiveCard} and returns whether or not the manager is empty of
      * {@link Timer}.
      */
-    public boolean stopTimer(int timerHashCode) {
-        Timer timer = findTimer(timerHashCode);
+    public boolean stopTimer(long timerId) {
+        Timer timer = findTimer(timerId);
 
         if (timer != null) {
-            LiveCard liveCard = mTimers.get(timer);
+            TimerCard timerCard = mTimers.remove(timerId);
 
-            liveCard.unpublish();
+            mExpiryTracker.untrack(timer);
+            if (timerCard.mRecorder != null) {
+                // Transitions of a stopped timer, e.g. from the menu, must not be journaled.
+                timer.removeListener(timerCard.mRecorder);
+            }
+            timerCard.mLiveCard.unpublish();
             timer.reset();
-            mTimers.remove(timer);
+            timerCard.mDrawer.release();
+            if (mJournal != null) {
+                mJournal.recordStop(timerId);
+            }
+            if (mTimers.isEmpty()) {
+                mSoundHandle.release();
+                mSoundHandle = null;
+            }
         }
         return mTimers.isEmpty();
     }
 
+    /**
+     * Navigates the timeline to the {@link LiveCard} of the {@link Timer}, resuming its rendering
+     * and ticking, if it is still managed.
+     */
+    public void navigateToTimer(long timerId) {
+        TimerCard timerCard = mTimers.get(timerId);
+
+        if (timerCard != null) {
+            timerCard.mLiveCard.navigate();
+        }
+    }
+
+    /**
+     * Handles the {@link TimerExpiryAlarm} of the {@link Timer}. Only the
+     * {@link TimerExpiryTracker} reports expiries, so the card is navigated to once whether the
+     * alarm or the main thread notices the deadline first.
+     */
+    public void onExpiryAlarm(long timerId) {
+        Timer timer = findTimer(timerId);
+
+        mExpiryTracker.advance();
+        if (timer != null) {
+            mExpiryTracker.expireIfDue(timer);
+        }
+    }
+
+    /** Returns the {@link TimerDrawer} of the {@link Timer}, visible for testing. */
+    TimerDrawer getDrawer(Timer timer) {
+        TimerCard timerCard = mTimers.get(timer.getId());
+
+        return timerCard != null ? timerCard.mDrawer : null;
+    }
+
+    /** Returns the {@link TimerExpiryTracker} of the managed timers, visible for testing. */
+    TimerExpiryTracker getExpiryTracker() {
+        return mExpiryTracker;
+    }
+
+    /** Returns whether or not the manager is empty of {@link Timer}. */
+    public boolean isEmpty() {
+        return mTimers.isEmpty();
+    }
+
+    /** Returns the number of managed {@link Timer}. */
+    public int getTimerCount() {
+        return mTimers.size();
+    }
+
+    /** Publishes the {@link LiveCard} of the {@link Timer} and registers them. */
+    private void publishTimer(Timer timer, PublishMode publishMode) {
+        if (mSoundHandle == null) {
+            mSoundHandle = TimerSoundPool.acquire(mContext);
+        }
+        TimerDrawer drawer = new TimerDrawer(mContext, timer, mTickScheduler);
+        LiveCard liveCard = new LiveCard(mContext, timer.toString());
+        Timer.TimerListener recorder = mJournal != null ? mJournal.newRecorder(timer) : null;
+
+        drawer.setRenderThread(mRenderThread);
+        drawer.setViewPool(mViewPool);
+        if (recorder != null) {
+            timer.addListener(recorder);
+        }
+        mExpiryTracker.track(timer);
+        liveCard.setDirectRenderingEnabled(true).getSurfaceHolder().addCallback(drawer);
+        liveCard.setVoiceActionEnabled(true);
+
+        Intent menuIntent = new Intent(mContext, MenuActivity.class);
+        menuIntent.setData(Uri.parse("glass.timer:" + timer.getId()));
+        menuIntent.putExtra(TimerService.EXTRA_TIMER_ID, timer.getId());
+        liveCard.setAction(PendingIntent.getActivity(mContext, 0, menuIntent, 0));
+        if (mContext instanceof Service) {
+            liveCard.attach((Service) mContext);
+        }
+        liveCard.publish(publishMode);
+        drawer.onPublished(publishMode);
+
+        mTimers.put(timer, new TimerCard(liveCard, drawer, recorder));
+    }
+
     /** Returns the {@link LiveCard} associated with this {@link Timer}. */
     public LiveCard getLiveCard(Timer timer) {
-        return mTimers.get(timer);
+        TimerCard timerCard = mTimers.get(timer.getId());
+
+        return timerCard != null ? timerCard.mLiveCard : null;
     }
 
     /**
-     * Returns the {@link Timer} identified by the provided {@code timerHashCode}.
+     * Returns the {@link Timer} identified by the provided {@code timerId}.
      */
-    public Timer findTimer(int timerHashCode) {
-        for (Timer timer : mTimers.keySet()) {
-            if (timer.hashCode() == timerHashCode) {
-                return timer;
-            }
+    @Override
+    public Timer findTimer(long timerId) {
+        return mTimers.findTimer(timerId);
+    }
+
+    @Override
+    public TimerSnapshot getSnapshot(long timerId) {
+        Timer timer = mTimers.findTimer(timerId);
+
+        return timer != null ? timer.getSnapshot() : null;
+    }
+
+    @Override
+    public List<TimerSnapshot> getSnapshots() {
+        List<Timer> timers = mTimers.getTimers();
+        List<TimerSnapshot> snapshots = new ArrayList<TimerSnapshot>(timers.size());
+
+        for (Timer timer : timers) {
+            snapshots.add(timer.getSnapshot());
         }
-        return null;
+        return snapshots;
     }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import java.io.PrintWriter;
+
+/**
+ * Process-wide latency histograms of the rendering and ticking paths, dumped by
+ * {@link TimerService} for {@code adb shell dumpsys activity service TimerService}.
+ */
+public final class TimerMetrics {
+
+    /** Time spent by {@link TimerDrawer#draw()} between locking and posting the canvas. */
+    public static final LatencyHistogram DRAW = new LatencyHistogram("draw");
+
+    /** Delay between the second boundary a tick was scheduled for and the time it ran. */
+    public static final LatencyHistogram TICK_LATENESS = new LatencyHistogram("tick_lateness");
+
+    /** Time spent handling an {@link android.content.Intent} in {@link TimerService}. */
+    public static final LatencyHistogram START_COMMAND = new LatencyHistogram("start_command");
+
+    /**
+     * Delay between creating {@link MenuActivity} and opening its menu, including the binding to
+     * {@link TimerService} when it is not in the same process.
+     */
+    public static final LatencyHistogram OPEN_MENU = new LatencyHistogram("open_menu");
+
+    private static final LatencyHistogram[] HISTOGRAMS = {
+        DRAW, TICK_LATENESS, START_COMMAND, OPEN_MENU
+    };
+
+    private TimerMetrics() {
+    }
+
+    /** Prints all the histograms. */
+    public static void dump(PrintWriter writer, String prefix) {
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.dump(writer, prefix);
+        }
+    }
+
+    /** Forgets all the recorded latencies, visible for testing. */
+    static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+/**
+ * Background thread drawing the frames of all the {@link TimerDrawer} opting in, so that drawing
+ * the live cards never competes with input handling and animations on the main thread.
+ */
+public class TimerRenderThread {
+
+    private static final String THREAD_NAME = "TimerRender";
+
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+
+    public TimerRenderThread() {
+        mThread = new HandlerThread(THREAD_NAME, Process.THREAD_PRIORITY_DISPLAY);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+    }
+
+    /** Runs the {@link Runnable} drawing a frame on the render thread, overridable for testing. */
+    protected void post(Runnable frame) {
+        mHandler.post(frame);
+    }
+
+    /**
+     * Stops the thread once the frames already posted are drawn. Frames posted afterwards are
+     * dropped, so the drawers must stop using this thread first.
+     */
+    public void quit() {
+        mHandler.post(new Runnable() {
+
+            @Override
+            public void run() {
+                mThread.quit();
+            }
+        });
+    }
+}
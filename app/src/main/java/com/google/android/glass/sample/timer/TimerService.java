@@ -21,6 +21,11 @@ import android.content.Intent;
 import android.os.Binder;
 import android.os.IBinder;
 
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.List;
+
 /**
  * Service owning the LiveCard living in the timeline.
  */
@@ -29,63 +34,191 @@ public class TimerService extends Service {
     /** {@link TimerService} Action: start an existing {@link Timer}. */
     public static final String ACTION_START = "com.google.android.glass.sample.timer.action.START";
 
+    /**
+     * {@link TimerService} Action: start a new {@link Timer} per duration of
+     * {@link #EXTRA_DURATIONS_MILLIS}, only revealing the last one.
+     */
+    public static final String ACTION_START_BATCH =
+            "com.google.android.glass.sample.timer.action.START_BATCH";
+
     /** {@link TimerService} Action: stop an existing {@link Timer}. */
     public static final String ACTION_STOP = "com.google.android.glass.sample.timer.action.STOP";
 
+    /** {@link TimerService} Action: bring an expired {@link Timer} into view. */
+    public static final String ACTION_EXPIRE =
+            "com.google.android.glass.sample.timer.action.EXPIRE";
+
     /** Timer duration in milliseconds. */
     public static final String EXTRA_DURATION_MILLIS = "duration_millis";
 
-    /** String extra containing the hashcode of the {@link Timer} to process. */
-    public static final String EXTRA_TIMER_HASH_CODE = "timer_hash_code";
+    /** Long array extra containing the durations in milliseconds of a batch of timers. */
+    public static final String EXTRA_DURATIONS_MILLIS = "durations_millis";
+
+    /** Long extra containing the {@link Timer#getId()} of the {@link Timer} to process. */
+    public static final String EXTRA_TIMER_ID = "timer_id";
 
     /**
-     * Binder giving access to the underlying {@code Timer}.
+     * Binder giving access to the underlying {@code Timer} and, in a single call, to the
+     * {@link TimerSnapshot} of any timer of the service.
      */
-    public static class TimerBinder extends Binder {
-        private Timer mTimer;
+    public static class TimerBinder extends Binder implements TimerStateProvider {
+        private final TimerStateProvider mProvider;
+        private final long mTimerId;
 
-        public TimerBinder(Timer timer) {
-            mTimer = timer;
+        public TimerBinder(TimerStateProvider provider, long timerId) {
+            mProvider = provider;
+            mTimerId = timerId;
         }
 
+        /** Returns the {@link Timer} the service was bound for, or {@code null} if stopped. */
         public Timer getTimer() {
-            return mTimer;
+            return mProvider.findTimer(mTimerId);
+        }
+
+        @Override
+        public Timer findTimer(long timerId) {
+            return mProvider.findTimer(timerId);
+        }
+
+        @Override
+        public TimerSnapshot getSnapshot(long timerId) {
+            return mProvider.getSnapshot(timerId);
+        }
+
+        @Override
+        public List<TimerSnapshot> getSnapshots() {
+            return mProvider.getSnapshots();
         }
     }
 
+    /** Directory, relative to the files directory, holding the {@link TimerJournal}. */
+    private static final String JOURNAL_DIRECTORY = "journal";
+
+    /**
+     * Created service of the process, if any, letting components of the same process skip binding
+     * to reach its timers. Only accessed from the main thread.
+     */
+    private static TimerService sService;
+
     private final TimerLiveCardManager mManager = new TimerLiveCardManager(this);
+    private TimerJournal mJournal;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        mManager.setRenderThreadEnabled(getResources().getBoolean(R.bool.config_render_thread));
+        mJournal = new TimerJournal(new File(getFilesDir(), JOURNAL_DIRECTORY));
+        mManager.restoreFrom(mJournal);
+        sService = this;
+    }
+
+    /**
+     * Returns the {@link TimerStateProvider} of the service when it is created in the calling
+     * process, {@code null} otherwise, in which case the service must be bound. Must be called
+     * from the main thread.
+     */
+    public static TimerStateProvider getInProcessStateProvider() {
+        return sService != null ? sService.mManager : null;
+    }
+
+    @Override
+    public void onDestroy() {
+        if (sService == this) {
+            sService = null;
+        }
+        mJournal.close();
+        mManager.release();
+        super.onDestroy();
+    }
 
     @Override
     public IBinder onBind(Intent intent) {
-        Timer timer = mManager.findTimer(intent.getIntExtra(EXTRA_TIMER_HASH_CODE, 0));
+        long timerId = getTimerId(intent);
 
-        if (timer != null) {
-            return new TimerBinder(timer);
+        if (mManager.findTimer(timerId) != null) {
+            return new TimerBinder(mManager, timerId);
         }
         return null;
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        handleIntent(intent);
+        if (intent != null) {
+            long startNanos = System.nanoTime();
+
+            handleIntent(intent);
+            TimerMetrics.START_COMMAND.record(System.nanoTime() - startNanos);
+        } else if (mManager.isEmpty()) {
+            // Restarted by the system but no timer could be recovered from the journal.
+            stopSelf();
+        }
 
-        // Return START_NOT_STICKY to prevent the system from restarting the service if it is killed
-        // (e.g., due to an error). It doesn't make sense to restart automatically because the timer
-        // state will have been lost.
-        return START_NOT_STICKY;
+        // Return START_STICKY so that the system restarts the service if it is killed, the timers
+        // being recovered from the journal in onCreate().
+        return START_STICKY;
+    }
+
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.print("timers: ");
+        writer.println(mManager.getTimerCount());
+        for (TimerSnapshot snapshot : mManager.getSnapshots()) {
+            writer.print("  #");
+            writer.print(snapshot.getId());
+            writer.print(": duration=");
+            writer.print(snapshot.getDurationMillis());
+            writer.print("ms remaining=");
+            writer.print(snapshot.getRemainingTimeMillis());
+            writer.print("ms ");
+            writer.println(snapshot.isRunning()
+                    ? "running" : (snapshot.isPaused() ? "paused" : "stopped"));
+        }
+        mManager.getViewPool().dump(writer, "");
+        TimerMetrics.dump(writer, "");
     }
 
     private void handleIntent(Intent intent) {
         String action = intent.getAction();
 
-        if (action.equals(ACTION_START)) {
+        if (ACTION_START.equals(action)) {
             long durationMillis = intent.getLongExtra(EXTRA_DURATION_MILLIS, 0);
 
             mManager.startNewTimer(durationMillis);
-        } else if (action.equals(ACTION_STOP)) {
-            if (mManager.stopTimer(intent.getIntExtra(EXTRA_TIMER_HASH_CODE, 0))) {
+        } else if (ACTION_START_BATCH.equals(action)) {
+            long[] durationsMillis = intent.getLongArrayExtra(EXTRA_DURATIONS_MILLIS);
+
+            if (durationsMillis != null && durationsMillis.length > 0) {
+                mManager.startNewTimers(durationsMillis);
+            } else if (mManager.isEmpty()) {
                 stopSelf();
             }
+        } else if (ACTION_STOP.equals(action)) {
+            if (mManager.stopTimer(getTimerId(intent))) {
+                stopSelf();
+            }
+        } else if (ACTION_EXPIRE.equals(action)) {
+            mManager.onExpiryAlarm(getTimerId(intent));
+            if (mManager.isEmpty()) {
+                // Alarm of a timer stopped or not recovered since it was set.
+                stopSelf();
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the {@link Timer} to process, read from {@link #EXTRA_TIMER_ID} or from
+     * the {@code glass.timer:<id>} data URI when the extra is missing.
+     */
+    static long getTimerId(Intent intent) {
+        long timerId = intent.getLongExtra(EXTRA_TIMER_ID, 0);
+
+        if (timerId == 0 && intent.getData() != null) {
+            try {
+                timerId = Long.parseLong(intent.getData().getSchemeSpecificPart());
+            } catch (NumberFormatException e) {
+                timerId = 0;
+            }
         }
+        return timerId;
     }
 }
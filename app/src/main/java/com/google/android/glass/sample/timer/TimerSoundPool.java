@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.content.Context;
+import android.media.AudioManager;
+import android.media.SoundPool;
+
+/**
+ * Process-wide {@link SoundPool} shared by all the timers: the "timer finished" sound is decoded
+ * once when the first {@link Handle} is acquired and the native resources are released with the
+ * last one.
+ */
+public final class TimerSoundPool {
+
+    /**
+     * Playback handle of the shared "timer finished" sound.
+     */
+    public static final class Handle {
+        private boolean mReleased;
+
+        private Handle() {
+        }
+
+        /** Plays the "timer finished" sound once. */
+        public void play() {
+            synchronized (TimerSoundPool.class) {
+                if (!mReleased) {
+                    sSoundPool.play(sTimerFinishedSoundId,
+                                    1 /* leftVolume */,
+                                    1 /* rightVolume */,
+                                    SOUND_PRIORITY,
+                                    0 /* loop */,
+                                    1 /* rate */);
+                }
+            }
+        }
+
+        /** Releases the handle, it can no longer be played afterwards. */
+        public void release() {
+            synchronized (TimerSoundPool.class) {
+                if (!mReleased) {
+                    mReleased = true;
+                    TimerSoundPool.release();
+                }
+            }
+        }
+    }
+
+    private static final int SOUND_PRIORITY = 1000;
+    private static final int MAX_STREAMS = 1;
+
+    private static SoundPool sSoundPool;
+    private static int sTimerFinishedSoundId;
+    private static int sReferenceCount;
+
+    private TimerSoundPool() {
+    }
+
+    /** Acquires a {@link Handle}, loading the sound if no other handle is currently held. */
+    public static synchronized Handle acquire(Context context) {
+        if (sReferenceCount == 0) {
+            sSoundPool = new SoundPool(MAX_STREAMS, AudioManager.STREAM_MUSIC, 0);
+            sTimerFinishedSoundId = sSoundPool.load(context, R.raw.timer_finished, SOUND_PRIORITY);
+        }
+        ++sReferenceCount;
+        return new Handle();
+    }
+
+    /** Returns the number of handles currently held, visible for testing. */
+    static synchronized int getReferenceCount() {
+        return sReferenceCount;
+    }
+
+    private static synchronized void release() {
+        if (--sReferenceCount == 0) {
+            sSoundPool.release();
+            sSoundPool = null;
+        }
+    }
+}
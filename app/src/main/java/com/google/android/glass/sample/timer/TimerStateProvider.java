@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import java.util.List;
+
+/**
+ * Typed access to the timers of the {@link TimerService}, either through its
+ * {@link TimerService.TimerBinder} or directly from a component of its process.
+ * <p>
+ * Must be called from the main thread.
+ */
+public interface TimerStateProvider {
+
+    /** Returns the {@link Timer} identified by {@code timerId}, or {@code null} if none. */
+    public Timer findTimer(long timerId);
+
+    /**
+     * Returns a {@link TimerSnapshot} of the {@link Timer} identified by {@code timerId}, or
+     * {@code null} if none.
+     */
+    public TimerSnapshot getSnapshot(long timerId);
+
+    /** Returns a {@link TimerSnapshot} of every {@link Timer}, in creation order. */
+    public List<TimerSnapshot> getSnapshots();
+}
@@ -17,9 +17,7 @@
 package com.google.android.glass.sample.timer;
 
 import android.content.Context;
-import android.media.AudioManager;
-import android.media.SoundPool;
-import android.os.Handler;
+import android.graphics.Rect;
 import android.util.Log;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
@@ -42,32 +40,52 @@ public class TimerView extends FrameLayout {
         public void onChange();
     }
 
-    private static final int SOUND_PRIORITY = 1000;
-    private static final int MAX_STREAMS = 1;
-    // Visible for testing.
-    static final long DELAY_MILLIS = 1000;
+    /** Flags of the components changed since the last frame, see {@link #getDirtyRect}. */
+    private static final int DIRTY_HOURS = 1 << 0;
+    private static final int DIRTY_MINUTES = 1 << 1;
+    private static final int DIRTY_SECONDS = 1 << 2;
+    private static final int DIRTY_TIP = 1 << 3;
+    private static final int DIRTY_TIME = DIRTY_HOURS | DIRTY_MINUTES | DIRTY_SECONDS;
 
-    private final SoundPool mSoundPool;
-    private final int mTimerFinishedSoundId;
+    /** Value of the time components before they are first set. */
+    private static final long UNSET = Long.MIN_VALUE;
 
-    private final TextView mHoursView;
-    private final TextView mMinutesView;
-    private final TextView mSecondsView;
+    private final TimerSoundPool.Handle mTimerFinishedSound;
+
+    private final TimeComponentView mHoursView;
+    private final TimeComponentView mMinutesView;
+    private final TimeComponentView mSecondsView;
     private final TextView mTipView;
 
+    /** Buffers owned by the time component views, reused on every update. */
+    private final char[] mHoursText = new char[TimeFormatter.BUFFER_SIZE];
+    private final char[] mMinutesText = new char[TimeFormatter.BUFFER_SIZE];
+    private final char[] mSecondsText = new char[TimeFormatter.BUFFER_SIZE];
+
     private final int mWhiteColor;
     private final int mRedColor;
 
-    private final Handler mHandler = new Handler();
-    private final Runnable mUpdateTextRunnable = new Runnable() {
+    private long mHours = UNSET;
+    private long mMinutes = UNSET;
+    private long mSeconds = UNSET;
+    private int mTextColor;
+    private int mDirtyFlags = DIRTY_TIME | DIRTY_TIP;
+    private final Rect mBounds = new Rect();
+
+    private final TickScheduler.TickListener mTickListener = new TickScheduler.TickListener() {
 
         @Override
-        public void run() {
+        public void onTick() {
             if (mRunning) {
-                postDelayed(mUpdateTextRunnable, DELAY_MILLIS);
                 updateText();
             }
         }
+
+        @Override
+        public long getNextTickDelayMillis() {
+            // Aligned on the next change of the displayed seconds.
+            return mRunning ? mTimer.getMillisToNextSecond() : Long.MAX_VALUE;
+        }
     };
 
     private final Timer.TimerListener mTimerListener = new Timer.TimerListener() {
@@ -75,28 +93,36 @@ public class TimerView extends FrameLayout {
         @Override
         public void onStart() {
             mRunning = true;
-            long delayMillis = Math.abs(mTimer.getRemainingTimeMillis()) % DELAY_MILLIS;
-            if (delayMillis == 0) {
-                delayMillis = DELAY_MILLIS;
+            if (mHidden) {
+                getExpiryAlarm().set(mTimer);
+            } else {
+                getTickScheduler().subscribe(mTickListener);
             }
-            postDelayed(mUpdateTextRunnable, delayMillis);
         }
 
         @Override
         public void onPause() {
             mRunning = false;
-            removeCallbacks(mUpdateTextRunnable);
+            if (mTickScheduler != null) {
+                mTickScheduler.unsubscribe(mTickListener);
+            }
+            if (mExpiryAlarm != null) {
+                mExpiryAlarm.cancel(mTimer);
+            }
         }
 
         @Override
         public void onReset() {
-            mTipView.setVisibility(View.INVISIBLE);
+            setTipVisibility(View.INVISIBLE);
             updateText(mTimer.getRemainingTimeMillis(), mWhiteColor);
         }
     };
 
     private Timer mTimer;
+    private TickScheduler mTickScheduler;
+    private TimerExpiryAlarm mExpiryAlarm;
 
+    private boolean mHidden;
     private boolean mStarted;
     private boolean mRunning;
     private boolean mRedText;
@@ -114,31 +140,108 @@ public class TimerView extends FrameLayout {
     public TimerView(Context context, AttributeSet attrs, int style) {
         super(context, attrs, style);
 
-        mSoundPool = new SoundPool(MAX_STREAMS, AudioManager.STREAM_MUSIC, 0);
-        mTimerFinishedSoundId = mSoundPool.load(context, R.raw.timer_finished, SOUND_PRIORITY);
+        mTimerFinishedSound = TimerSoundPool.acquire(context);
 
         LayoutInflater.from(context).inflate(R.layout.card_timer, this);
 
-        mHoursView = (TextView) findViewById(R.id.hours);
-        mMinutesView = (TextView) findViewById(R.id.minutes);
-        mSecondsView = (TextView) findViewById(R.id.seconds);
+        mHoursView = (TimeComponentView) findViewById(R.id.hours);
+        mMinutesView = (TimeComponentView) findViewById(R.id.minutes);
+        mSecondsView = (TimeComponentView) findViewById(R.id.seconds);
         mTipView = (TextView) findViewById(R.id.tip);
         mTipView.setText(context.getResources().getString(R.string.timer_finished));
-        mTipView.setVisibility(View.INVISIBLE);
+        setTipVisibility(View.INVISIBLE);
 
         mWhiteColor = context.getResources().getColor(R.color.white);
         mRedColor = context.getResources().getColor(R.color.red);
     }
 
-    /** Sets the {@link Timer} model backing up the view. */
+    /**
+     * Sets the {@link TickScheduler} driving the text updates, typically shared by all the timers.
+     */
+    public void setTickScheduler(TickScheduler tickScheduler) {
+        boolean subscribed = mTickScheduler != null && mTickScheduler.isSubscribed(mTickListener);
+
+        if (subscribed) {
+            mTickScheduler.unsubscribe(mTickListener);
+        }
+        mTickScheduler = tickScheduler;
+        if (subscribed) {
+            getTickScheduler().subscribe(mTickListener);
+        }
+    }
+
+    /**
+     * Returns the {@link TickScheduler} driving the text updates, created on first use if none was
+     * set so that views given one by their {@link TimerDrawer} do not allocate their own.
+     */
+    public TickScheduler getTickScheduler() {
+        if (mTickScheduler == null) {
+            mTickScheduler = new TickScheduler();
+        }
+        return mTickScheduler;
+    }
+
+    /** Sets the {@link TimerExpiryAlarm} waking up the device while the view is hidden. */
+    public void setExpiryAlarm(TimerExpiryAlarm expiryAlarm) {
+        mExpiryAlarm = expiryAlarm;
+    }
+
+    /** Returns the {@link TimerExpiryAlarm}, created on first use if none was set. */
+    private TimerExpiryAlarm getExpiryAlarm() {
+        if (mExpiryAlarm == null) {
+            mExpiryAlarm = new TimerExpiryAlarm(getContext());
+        }
+        return mExpiryAlarm;
+    }
+
+    /**
+     * Sets whether or not the view is hidden. A hidden view stops ticking and relies on a single
+     * {@link TimerExpiryAlarm} at the deadline of its running {@link Timer}; once visible again,
+     * its text is resynchronized from the {@link Timer}.
+     */
+    public void setHidden(boolean hidden) {
+        if (hidden == mHidden) {
+            return;
+        }
+        mHidden = hidden;
+        if (!mRunning) {
+            return;
+        }
+        if (hidden) {
+            getTickScheduler().unsubscribe(mTickListener);
+            getExpiryAlarm().set(mTimer);
+        } else {
+            getExpiryAlarm().cancel(mTimer);
+            updateText();
+            getTickScheduler().subscribe(mTickListener);
+        }
+    }
+
+    /** Returns whether or not the view is hidden. */
+    public boolean isHidden() {
+        return mHidden;
+    }
+
+    /**
+     * Sets the {@link Timer} model backing up the view, ticking right away if it is running and the
+     * view is not hidden.
+     */
     public void setTimer(Timer timer) {
         if (mTimer != null) {
             // Remove self from the previous Timer's listener.
-            mTimer.setListener(null);
+            mTimer.removeListener(mTimerListener);
         }
         mTimer = timer;
-        mTimer.setListener(mTimerListener);
-        updateText(mTimer.getRemainingTimeMillis(), mWhiteColor);
+        mTimer.addListener(mTimerListener);
+        mRunning = mTimer.isRunning();
+        if (mRunning) {
+            updateText();
+            if (!mHidden) {
+                getTickScheduler().subscribe(mTickListener);
+            }
+        } else {
+            updateText(mTimer.getRemainingTimeMillis(), mWhiteColor);
+        }
     }
 
     /** Returns the {@link Timer} model backing up the view. */
@@ -146,6 +249,41 @@ public class TimerView extends FrameLayout {
         return mTimer;
     }
 
+    /**
+     * Detaches the view from its {@link Timer} and resets its state, so that it can be reused for
+     * another {@link Timer} through {@link #setTimer(Timer)} without being inflated again.
+     */
+    public void recycle() {
+        if (mTickScheduler != null) {
+            mTickScheduler.unsubscribe(mTickListener);
+        }
+        if (mTimer != null) {
+            mTimer.removeListener(mTimerListener);
+            if (mRunning && mHidden) {
+                getExpiryAlarm().cancel(mTimer);
+            }
+            mTimer = null;
+        }
+        mHidden = false;
+        mRunning = false;
+        mRedText = false;
+        mChangeListener = null;
+        mHours = UNSET;
+        mMinutes = UNSET;
+        mSeconds = UNSET;
+        setTipVisibility(View.INVISIBLE);
+        mDirtyFlags = DIRTY_TIME | DIRTY_TIP;
+    }
+
+    /**
+     * Releases the resources held by the view, which no longer follows its {@link Timer} nor plays
+     * sounds afterwards.
+     */
+    public void release() {
+        recycle();
+        mTimerFinishedSound.release();
+    }
+
     /**
      * Sets a {@link ChangeListener}.
      */
@@ -160,17 +298,6 @@ public class TimerView extends FrameLayout {
         return mChangeListener;
     }
 
-    @Override
-    public boolean postDelayed(Runnable action, long delayMillis) {
-        return mHandler.postDelayed(action, delayMillis);
-    }
-
-    @Override
-    public boolean removeCallbacks(Runnable action) {
-        mHandler.removeCallbacks(action);
-        return true;
-    }
-
     /**
      * Updates the text from the Timer's value, overridable for testing.
      */
@@ -182,11 +309,11 @@ public class TimerView extends FrameLayout {
             // Round up: x001 to (x + 1)000 milliseconds should resolve to x seconds.
             remainingTimeMillis -= 1;
             remainingTimeMillis += TimeUnit.SECONDS.toMillis(1);
-            mTipView.setVisibility(View.INVISIBLE);
+            setTipVisibility(View.INVISIBLE);
         } else {
             mRedText = !mRedText;
             remainingTimeMillis = Math.abs(remainingTimeMillis);
-            mTipView.setVisibility(View.VISIBLE);
+            setTipVisibility(View.VISIBLE);
         }
 
         if (mRedText) {
@@ -199,30 +326,134 @@ public class TimerView extends FrameLayout {
 
     /**
      * Updates the displayed text with the provided values, overridable for testing.
+     * <p>
+     * Only the components that actually changed are set and marked as dirty; the
+     * {@link ChangeListener} is not notified if nothing changed.
      */
     protected void updateText(long timeMillis, int textColor) {
-        mHoursView.setText(String.format("%02d", TimeUnit.MILLISECONDS.toHours(timeMillis)));
-        mHoursView.setTextColor(textColor);
+        boolean allUnset = mHours == UNSET;
+        long hours = TimeUnit.MILLISECONDS.toHours(timeMillis);
         timeMillis %= TimeUnit.HOURS.toMillis(1);
-        mMinutesView.setText(String.format("%02d", TimeUnit.MILLISECONDS.toMinutes(timeMillis)));
-        mMinutesView.setTextColor(textColor);
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(timeMillis);
         timeMillis %= TimeUnit.MINUTES.toMillis(1);
-        mSecondsView.setText(String.format("%02d", TimeUnit.MILLISECONDS.toSeconds(timeMillis)));
-        mSecondsView.setTextColor(textColor);
-        if (mChangeListener != null) {
+        long seconds = TimeUnit.MILLISECONDS.toSeconds(timeMillis);
+
+        if (hours != mHours) {
+            mHours = hours;
+            setText(mHoursView, mHoursText, hours);
+            mDirtyFlags |= DIRTY_HOURS;
+        }
+        if (minutes != mMinutes) {
+            mMinutes = minutes;
+            setText(mMinutesView, mMinutesText, minutes);
+            mDirtyFlags |= DIRTY_MINUTES;
+        }
+        if (seconds != mSeconds) {
+            mSeconds = seconds;
+            setText(mSecondsView, mSecondsText, seconds);
+            mDirtyFlags |= DIRTY_SECONDS;
+        }
+        if (allUnset || textColor != mTextColor) {
+            mTextColor = textColor;
+            mHoursView.setTextColor(textColor);
+            mMinutesView.setTextColor(textColor);
+            mSecondsView.setTextColor(textColor);
+            mDirtyFlags |= DIRTY_TIME;
+        }
+        if (mDirtyFlags != 0 && mChangeListener != null) {
             mChangeListener.onChange();
         }
     }
 
+    /**
+     * Computes in {@code outRect} the bounds, in this view's coordinates, of the components that
+     * changed since the last call to {@link #clearDirty()} and returns whether or not any did.
+     */
+    public boolean getDirtyRect(Rect outRect) {
+        outRect.setEmpty();
+        if ((mDirtyFlags & DIRTY_HOURS) != 0) {
+            unionBounds(outRect, mHoursView);
+        }
+        if ((mDirtyFlags & DIRTY_MINUTES) != 0) {
+            unionBounds(outRect, mMinutesView);
+        }
+        if ((mDirtyFlags & DIRTY_SECONDS) != 0) {
+            unionBounds(outRect, mSecondsView);
+        }
+        if ((mDirtyFlags & DIRTY_TIP) != 0) {
+            unionBounds(outRect, mTipView);
+        }
+        return !outRect.isEmpty();
+    }
+
+    /** Marks all the components as drawn. */
+    public void clearDirty() {
+        mDirtyFlags = 0;
+    }
+
+    /** Sets the tip visibility, marking it dirty if it changed. */
+    private void setTipVisibility(int visibility) {
+        if (mTipView.getVisibility() != visibility) {
+            mTipView.setVisibility(visibility);
+            mDirtyFlags |= DIRTY_TIP;
+        }
+    }
+
+    /** Extends {@code rect} with the bounds of the descendant {@code view}. */
+    private void unionBounds(Rect rect, View view) {
+        getDescendantBounds(view, mBounds);
+        rect.union(mBounds);
+    }
+
+    /** Computes in {@code outRect} the bounds, in this view's coordinates, of a descendant. */
+    void getDescendantBounds(View view, Rect outRect) {
+        int left = view.getLeft();
+        int top = view.getTop();
+
+        for (View parent = (View) view.getParent(); parent != this;
+                parent = (View) parent.getParent()) {
+            left += parent.getLeft();
+            top += parent.getTop();
+        }
+        outRect.set(left, top, left + view.getWidth(), top + view.getHeight());
+    }
+
+    /** Returns the displayed hours, visible for the {@link TimerGlyphAtlas}. */
+    long getHours() {
+        return mHours;
+    }
+
+    /** Returns the displayed minutes, visible for the {@link TimerGlyphAtlas}. */
+    long getMinutes() {
+        return mMinutes;
+    }
+
+    /** Returns the displayed seconds, visible for the {@link TimerGlyphAtlas}. */
+    long getSeconds() {
+        return mSeconds;
+    }
+
+    /** Returns the color of the displayed time, visible for the {@link TimerGlyphAtlas}. */
+    int getTextColor() {
+        return mTextColor;
+    }
+
+    /** Returns whether or not the tip is visible, visible for the {@link TimerGlyphAtlas}. */
+    boolean isTipVisible() {
+        return mTipView.getVisibility() == View.VISIBLE;
+    }
+
+    /**
+     * Sets the two digits {@code value} as the text of {@code view} through its reusable buffer.
+     */
+    private static void setText(TimeComponentView view, char[] buffer, long value) {
+        view.setDigits(buffer, TimeFormatter.formatTwoDigits(value, buffer));
+    }
+
     /**
      * Plays the "timer finishd" sound once, overridable for testing.
      */
     protected void playSound() {
-        mSoundPool.play(mTimerFinishedSoundId,
-                        1 /* leftVolume */,
-                        1 /* rightVolume */,
-                        SOUND_PRIORITY,
-                        0 /* loop */,
-                        1 /* rate */);
+        mTimerFinishedSound.play();
     }
 }
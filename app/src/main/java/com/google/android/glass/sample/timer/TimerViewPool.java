@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import android.content.Context;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+/**
+ * Bounded pool of recycled {@link TimerView}, so that starting timers and scrolling between their
+ * cards reuses already inflated views instead of inflating new ones.
+ */
+public class TimerViewPool {
+
+    private final Context mContext;
+    private final int mCapacity;
+    private final ArrayList<TimerView> mViews;
+
+    private long mHitCount;
+    private long mMissCount;
+
+    public TimerViewPool(Context context, int capacity) {
+        mContext = context;
+        mCapacity = capacity;
+        mViews = new ArrayList<TimerView>(capacity);
+    }
+
+    /** Returns a recycled {@link TimerView} if any, a newly inflated one otherwise. */
+    public TimerView acquire() {
+        if (mViews.isEmpty()) {
+            ++mMissCount;
+            return newView();
+        }
+        ++mHitCount;
+        return mViews.remove(mViews.size() - 1);
+    }
+
+    /** Recycles the {@link TimerView} for reuse, or releases it if the pool is full. */
+    public void recycle(TimerView view) {
+        if (mViews.size() < mCapacity) {
+            view.recycle();
+            mViews.add(view);
+        } else {
+            view.release();
+        }
+    }
+
+    /** Releases all the pooled views. */
+    public void clear() {
+        for (int i = 0; i < mViews.size(); ++i) {
+            mViews.get(i).release();
+        }
+        mViews.clear();
+    }
+
+    /** Returns the number of pooled views. */
+    public int size() {
+        return mViews.size();
+    }
+
+    /** Returns the number of views acquired from the pool. */
+    public long getHitCount() {
+        return mHitCount;
+    }
+
+    /** Returns the number of views inflated because the pool was empty. */
+    public long getMissCount() {
+        return mMissCount;
+    }
+
+    /** Prints the pool size and its hit rate, e.g. for {@code adb shell dumpsys}. */
+    public void dump(PrintWriter writer, String prefix) {
+        long acquiredCount = mHitCount + mMissCount;
+
+        writer.print(prefix);
+        writer.print("view_pool: size=");
+        writer.print(mViews.size());
+        writer.print('/');
+        writer.print(mCapacity);
+        writer.print(" hits=");
+        writer.print(mHitCount);
+        writer.print(" misses=");
+        writer.print(mMissCount);
+        if (acquiredCount > 0) {
+            writer.print(" hit_rate=");
+            writer.print(mHitCount * 100 / acquiredCount);
+            writer.print('%');
+        }
+        writer.println();
+    }
+
+    /** Inflates a new {@link TimerView}, overridable for testing. */
+    protected TimerView newView() {
+        return new TimerView(mContext);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the fling computation done by {@code SetTimerActivity.onFingerCountChanged()}
+ * when the finger is released.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class FlingPhysicsBenchmark {
+
+    /** Release velocities covering slow, fast, backward and below cutoff swipes. */
+    private static final float[] VELOCITIES = { 0.5f, 2f, 20f, -3f, -40f, 8f, -0.2f, 60f };
+
+    /** Time between two display frames at 60 fps. */
+    private static final long FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    private final FlingIntegrator mIntegrator = new FlingIntegrator(TimeUnit.MINUTES.toSeconds(1));
+    private long mFrameTimeNanos;
+    private int mIndex;
+
+    @Benchmark
+    public long fling() {
+        if (++mIndex == VELOCITIES.length) {
+            mIndex = 0;
+        }
+        float velocity = VELOCITIES[mIndex];
+
+        if (!FlingPhysics.shouldFling(velocity)) {
+            return 0;
+        }
+        return (long) FlingPhysics.getDistance(velocity) + FlingPhysics.getDurationMillis(velocity);
+    }
+
+    /** Samples a running fling at the next display frame, restarting it once it settles. */
+    @Benchmark
+    public float flingFrame() {
+        if (!mIntegrator.isRunning()) {
+            mIntegrator.start(0, 20, 0, Float.MAX_VALUE, mFrameTimeNanos);
+        }
+        mFrameTimeNanos += FRAME_NANOS;
+        return mIntegrator.advanceTo(mFrameTimeNanos);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the remaining time to HH:MM:SS formatting done on every tick by the
+ * {@code TimerView}, compared with the {@code String.format()} based formatting it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class TimeFormatterBenchmark {
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final char[] mHoursText = new char[TimeFormatter.BUFFER_SIZE];
+    private final char[] mMinutesText = new char[TimeFormatter.BUFFER_SIZE];
+    private final char[] mSecondsText = new char[TimeFormatter.BUFFER_SIZE];
+
+    private long mTimeMillis;
+
+    @Benchmark
+    public int formatTimeFormatter() {
+        long timeMillis = nextTimeMillis();
+        int length = TimeFormatter.formatTwoDigits(
+                TimeUnit.MILLISECONDS.toHours(timeMillis), mHoursText);
+        timeMillis %= TimeUnit.HOURS.toMillis(1);
+        length += TimeFormatter.formatTwoDigits(
+                TimeUnit.MILLISECONDS.toMinutes(timeMillis), mMinutesText);
+        timeMillis %= TimeUnit.MINUTES.toMillis(1);
+        length += TimeFormatter.formatTwoDigits(
+                TimeUnit.MILLISECONDS.toSeconds(timeMillis), mSecondsText);
+        return length;
+    }
+
+    @Benchmark
+    public int formatStringFormat() {
+        long timeMillis = nextTimeMillis();
+        int length = String.format("%02d", TimeUnit.MILLISECONDS.toHours(timeMillis)).length();
+        timeMillis %= TimeUnit.HOURS.toMillis(1);
+        length += String.format("%02d", TimeUnit.MILLISECONDS.toMinutes(timeMillis)).length();
+        timeMillis %= TimeUnit.MINUTES.toMillis(1);
+        length += String.format("%02d", TimeUnit.MILLISECONDS.toSeconds(timeMillis)).length();
+        return length;
+    }
+
+    /** Returns the next remaining time, one second less than the previous one. */
+    private long nextTimeMillis() {
+        mTimeMillis -= TimeUnit.SECONDS.toMillis(1);
+        if (mTimeMillis < 0) {
+            mTimeMillis = DAY_MILLIS;
+        }
+        return mTimeMillis;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link Timer} state transitions and remaining time computation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class TimerBenchmark {
+
+    /** Number of {@link Timer.TimerListener} notified of every transition. */
+    @Param({"0", "1", "4"})
+    public int mListenerCount;
+
+    private Timer mRunningTimer;
+    private Timer mTimer;
+
+    @Setup
+    public void setUp() {
+        mRunningTimer = new Timer(TimeUnit.MINUTES.toMillis(5));
+        mRunningTimer.start();
+        mTimer = new Timer(TimeUnit.MINUTES.toMillis(5));
+        for (int i = 0; i < mListenerCount; ++i) {
+            mTimer.addListener(new Timer.TimerListener() {
+
+                @Override
+                public void onStart() {
+                }
+
+                @Override
+                public void onPause() {
+                }
+
+                @Override
+                public void onReset() {
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public long getRemainingTimeMillis() {
+        return mRunningTimer.getRemainingTimeMillis();
+    }
+
+    @Benchmark
+    public long startPauseResetCycle() {
+        mTimer.start();
+        long remainingTimeMillis = mTimer.getRemainingTimeMillis();
+        mTimer.pause();
+        mTimer.start();
+        mTimer.reset();
+        return remainingTimeMillis;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link Timer} lookups done by {@code TimerLiveCardManager.findTimer()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class TimerRegistryBenchmark {
+
+    @Param({"1", "10", "100", "1000", "10000", "100000"})
+    public int mTimerCount;
+
+    private TimerRegistry<Object> mRegistry;
+    private long[] mTimerIds;
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        mRegistry = new TimerRegistry<Object>();
+        mTimerIds = new long[mTimerCount];
+        for (int i = 0; i < mTimerCount; ++i) {
+            Timer timer = new Timer();
+
+            mRegistry.put(timer, null);
+            mTimerIds[i] = timer.getId();
+        }
+    }
+
+    @Benchmark
+    public Timer findTimer() {
+        if (++mIndex == mTimerIds.length) {
+            mIndex = 0;
+        }
+        return mRegistry.findTimer(mTimerIds[mIndex]);
+    }
+}
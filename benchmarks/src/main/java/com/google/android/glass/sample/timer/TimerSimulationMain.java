@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a {@link TimerSimulation} configured from the command line and prints its report along
+ * with its CPU cost per simulated hour:
+ * <pre>
+ *   $ ./gradlew :benchmarks:simulate [-PsimulateArgs="--timers=10000 --hours=24"]
+ * </pre>
+ */
+public class TimerSimulationMain {
+
+    public static void main(String[] args) {
+        TimerSimulation simulation = new TimerSimulation();
+        PrintWriter writer = new PrintWriter(System.out, true);
+
+        for (String arg : args) {
+            simulation.parseArgument(arg);
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long startWallNanos = System.nanoTime();
+        long startCpuNanos = threads.getCurrentThreadCpuTime();
+
+        simulation.run();
+
+        long cpuNanos = threads.getCurrentThreadCpuTime() - startCpuNanos;
+        long wallNanos = System.nanoTime() - startWallNanos;
+
+        simulation.dump(writer);
+        writer.println("cpu: " + TimeUnit.NANOSECONDS.toMillis(cpuNanos) + "ms, "
+                + TimeUnit.NANOSECONDS.toMicros(
+                        (long) (cpuNanos / simulation.getSimulatedHours()))
+                + "us per simulated hour, wall: " + TimeUnit.NANOSECONDS.toMillis(wallNanos)
+                + "ms");
+        writer.flush();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link TimingWheel} behind the expiry of the running timers, with every
+ * expired timer immediately restarted so that the wheel stays at {@code mTimerCount} entries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class TimingWheelBenchmark {
+
+    /** Longest duration of the simulated timers. */
+    private static final long MAX_DURATION_MILLIS = TimeUnit.HOURS.toMillis(2);
+
+    @Param({ "1000", "100000" })
+    public int mTimerCount;
+
+    private final Random mRandom = new Random(42);
+    private TimingWheel<Object> mWheel;
+    private long mNowMillis;
+
+    private final TimingWheel.ExpiryHandler<Object> mRestartHandler =
+            new TimingWheel.ExpiryHandler<Object>() {
+
+        @Override
+        public void onExpired(Object value) {
+            mWheel.schedule(value, mNowMillis + nextDurationMillis());
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        mWheel = new TimingWheel<Object>(TimerExpiryTracker.TICK_MILLIS, mNowMillis);
+        for (int i = 0; i < mTimerCount; ++i) {
+            mWheel.schedule(null, nextDurationMillis());
+        }
+    }
+
+    /** Pauses and resumes a timer among {@code mTimerCount} running ones. */
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        return mWheel.cancel(mWheel.schedule(null, mNowMillis + nextDurationMillis()));
+    }
+
+    /** Advances by one tick, expiring and restarting the timers that reached their deadline. */
+    @Benchmark
+    public int advanceOneTick() {
+        mNowMillis += TimerExpiryTracker.TICK_MILLIS;
+        return mWheel.advanceTo(mNowMillis, mRestartHandler);
+    }
+
+    /** Returns the earliest deadline, computed after every timer transition. */
+    @Benchmark
+    public long getNextDeadlineMillis() {
+        return mWheel.getNextDeadlineMillis();
+    }
+
+    private long nextDurationMillis() {
+        return 1 + (long) (mRandom.nextDouble() * MAX_DURATION_MILLIS);
+    }
+}
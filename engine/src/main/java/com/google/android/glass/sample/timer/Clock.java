@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+/**
+ * Monotonic time source used by the {@link Timer}.
+ */
+public interface Clock {
+
+    /**
+     * {@link Clock} backed by {@link System#nanoTime()}. On Android, this clock stops while the
+     * device is in deep sleep: use a clock based on {@code SystemClock.elapsedRealtimeNanos()}
+     * instead.
+     */
+    public static final Clock SYSTEM = new Clock() {
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * Returns the current time in nanoseconds. The origin is arbitrary, the value is only
+     * meaningful to compute durations and never goes backwards.
+     */
+    public long nanoTime();
+}
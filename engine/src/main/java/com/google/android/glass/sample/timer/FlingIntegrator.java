@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Integrator of the inertial scrolling used to set the timer, started from a release velocity and
+ * then sampled at the time of each display frame.
+ * <p>
+ * The position follows a constant deceleration from the release velocity over the distance of
+ * {@link FlingPhysics}, extended in the direction of the fling to the next multiple of the snap
+ * interval so that the fling settles exactly on it, or clamped to its bounds. The duration follows
+ * the actual distance, see {@link FlingPhysics#getDurationMillis(float, float)}.
+ * Only primitives are involved, so that sampling a running fling allocates nothing.
+ */
+public class FlingIntegrator {
+
+    private final float mSnapInterval;
+
+    private float mStartPosition;
+    private float mDistance;
+    private long mStartNanos;
+    private long mDurationNanos;
+    private boolean mRunning;
+
+    /** Creates an integrator whose flings settle on multiples of {@code snapInterval}. */
+    public FlingIntegrator(float snapInterval) {
+        if (snapInterval <= 0) {
+            throw new IllegalArgumentException("snapInterval must be positive: " + snapInterval);
+        }
+        mSnapInterval = snapInterval;
+    }
+
+    /**
+     * Starts a fling from {@code position} at {@code velocity} at {@code nowNanos}, stopping
+     * between {@code minPosition} and {@code maxPosition}, and returns whether or not the velocity
+     * was enough to start it, see {@link FlingPhysics#shouldFling(float)}.
+     */
+    public boolean start(float position, float velocity, float minPosition, float maxPosition,
+            long nowNanos) {
+        mRunning = FlingPhysics.shouldFling(velocity);
+        if (!mRunning) {
+            return false;
+        }
+        float target = position + FlingPhysics.getDistance(velocity);
+
+        target = velocity > 0
+                ? (float) Math.ceil(target / mSnapInterval) * mSnapInterval
+                : (float) Math.floor(target / mSnapInterval) * mSnapInterval;
+        target = Math.max(minPosition, Math.min(target, maxPosition));
+        mStartPosition = position;
+        mDistance = target - position;
+        mStartNanos = nowNanos;
+        mDurationNanos = (long) (FlingPhysics.getDurationMillis(velocity, mDistance)
+                * TimeUnit.MILLISECONDS.toNanos(1));
+        return true;
+    }
+
+    /** Returns whether or not the fling is still moving. */
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * Returns the position of the fling at {@code frameTimeNanos}, exactly its final position once
+     * its duration elapsed, at which point it stops running.
+     */
+    public float advanceTo(long frameTimeNanos) {
+        long elapsedNanos = frameTimeNanos - mStartNanos;
+
+        if (elapsedNanos >= mDurationNanos) {
+            mRunning = false;
+            return getFinalPosition();
+        }
+        if (elapsedNanos <= 0) {
+            return mStartPosition;
+        }
+        // Under a constant deceleration, the distance left is quadratic in the time left.
+        float timeLeft = 1f - (float) elapsedNanos / mDurationNanos;
+
+        return mStartPosition + mDistance * (1f - timeLeft * timeLeft);
+    }
+
+    /** Stops the fling and returns its final position. */
+    public float finish() {
+        mRunning = false;
+        return getFinalPosition();
+    }
+
+    /** Stops the fling where it is. */
+    public void cancel() {
+        mRunning = false;
+    }
+
+    /** Returns the position at which the last started fling settles. */
+    public float getFinalPosition() {
+        return mStartPosition + mDistance;
+    }
+}
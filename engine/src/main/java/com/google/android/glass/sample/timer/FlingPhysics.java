@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+/**
+ * Physics simulation of the inertial scrolling used to set the timer, with a constant deceleration
+ * opposed to the release velocity.
+ */
+public final class FlingPhysics {
+
+    /** Deceleration constant for physics simulation. */
+    public static final float DECELERATION_CONSTANT = 0.2f;
+
+    /** Minimum velocity to start the inertial scrolling. */
+    public static final float FLING_VELOCITY_CUTOFF = 1;
+
+    /** Exagerate the time it takes to slow down the inertial scrolling. */
+    public static final float TIME_LENGTHENING = 12;
+
+    private FlingPhysics() {
+    }
+
+    /** Returns whether or not releasing the finger at {@code velocity} starts a fling. */
+    public static boolean shouldFling(float velocity) {
+        // Only fling if the velocity is greater than the cutoff
+        return Math.abs(velocity) > FLING_VELOCITY_CUTOFF;
+    }
+
+    /** Returns the signed distance travelled until the fling started at {@code velocity} stops. */
+    public static float getDistance(float velocity) {
+        return velocity * velocity / 2f / -getDeceleration(velocity);
+    }
+
+    /** Returns the duration in milliseconds of the fling started at {@code velocity}. */
+    public static long getDurationMillis(float velocity) {
+        return (long) (-velocity / getDeceleration(velocity) * TIME_LENGTHENING);
+    }
+
+    /**
+     * Returns the duration in milliseconds of a fling started at {@code velocity} decelerating
+     * uniformly to stop after {@code distance}, e.g. {@link #getDistance(float)} once snapped or
+     * clamped, so that it starts at exactly the release velocity.
+     */
+    public static float getDurationMillis(float velocity, float distance) {
+        return 2f * Math.abs(distance) / Math.abs(velocity) * TIME_LENGTHENING;
+    }
+
+    private static float getDeceleration(float velocity) {
+        // Deceleration always in the opposite direction of the velocity
+        return Math.signum(velocity) * -DECELERATION_CONSTANT;
+    }
+}
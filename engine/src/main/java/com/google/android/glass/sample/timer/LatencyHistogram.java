@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Histogram of latencies with fixed power of two buckets of microseconds, so that recording a
+ * value allocates nothing.
+ * <p>
+ * The bucket 0 counts the latencies under 1us and the bucket {@code i} those in
+ * [2^(i-1), 2^i) us; the last bucket also counts everything longer.
+ */
+public class LatencyHistogram {
+
+    /** Number of buckets, the last one starting at about 18 minutes. */
+    public static final int BUCKET_COUNT = 32;
+
+    private final String mName;
+    private final long[] mBuckets = new long[BUCKET_COUNT];
+    private long mCount;
+    private long mSumNanos;
+    private long mMaxNanos;
+
+    public LatencyHistogram(String name) {
+        mName = name;
+    }
+
+    /** Returns the name of the histogram. */
+    public String getName() {
+        return mName;
+    }
+
+    /** Records a latency in nanoseconds, negative latencies being counted as 0. */
+    public synchronized void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        ++mBuckets[getBucket(nanos)];
+        ++mCount;
+        mSumNanos += nanos;
+        if (nanos > mMaxNanos) {
+            mMaxNanos = nanos;
+        }
+    }
+
+    /** Returns the number of recorded latencies. */
+    public synchronized long getCount() {
+        return mCount;
+    }
+
+    /** Returns the number of recorded latencies in the bucket. */
+    public synchronized long getBucketCount(int bucket) {
+        return mBuckets[bucket];
+    }
+
+    /**
+     * Returns an upper bound, in nanoseconds, of the {@code percentile} of the recorded latencies:
+     * the exclusive end of its bucket, or the maximum if lower.
+     */
+    public synchronized long getPercentileNanos(int percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long rank = (mCount * percentile + 99) / 100;
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += mBuckets[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(getBucketEndNanos(i), mMaxNanos);
+            }
+        }
+        return mMaxNanos;
+    }
+
+    /** Forgets all the recorded latencies. */
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            mBuckets[i] = 0;
+        }
+        mCount = 0;
+        mSumNanos = 0;
+        mMaxNanos = 0;
+    }
+
+    /** Prints a summary and the non empty buckets, e.g. for {@code adb shell dumpsys}. */
+    public synchronized void dump(PrintWriter writer, String prefix) {
+        writer.print(prefix);
+        writer.print(mName);
+        writer.print(": count=");
+        writer.print(mCount);
+        if (mCount > 0) {
+            writer.print(" mean=");
+            writer.print(formatMicros(mSumNanos / mCount));
+            writer.print(" p50<=");
+            writer.print(formatMicros(getPercentileNanos(50)));
+            writer.print(" p90<=");
+            writer.print(formatMicros(getPercentileNanos(90)));
+            writer.print(" p99<=");
+            writer.print(formatMicros(getPercentileNanos(99)));
+            writer.print(" max=");
+            writer.print(formatMicros(mMaxNanos));
+        }
+        writer.println();
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            if (mBuckets[i] != 0) {
+                writer.print(prefix);
+                writer.print("  <");
+                writer.print(i == BUCKET_COUNT - 1 ? "inf" : formatMicros(getBucketEndNanos(i)));
+                writer.print(": ");
+                writer.println(mBuckets[i]);
+            }
+        }
+    }
+
+    /** Returns the bucket counting {@code nanos}, visible for testing. */
+    static int getBucket(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+
+        return Math.min(Long.SIZE - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+    }
+
+    /** Returns the exclusive end of the bucket in nanoseconds. */
+    private static long getBucketEndNanos(int bucket) {
+        return TimeUnit.MICROSECONDS.toNanos(1L << bucket);
+    }
+
+    private static String formatMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+    }
+}
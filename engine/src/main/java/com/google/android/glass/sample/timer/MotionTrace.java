@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Recorded stream of motion events, e.g. touchpad swipes, replayable at their original timing.
+ * <p>
+ * Each event keeps its time and down time relative to the first event, its action, its source
+ * and the id and coordinates of its pointers. The events are stored in primitive arrays and
+ * serialized as a compact binary trace: a header followed by 15 bytes per event and 9 bytes per
+ * pointer.
+ */
+public class MotionTrace {
+
+    /** "MTRC". */
+    private static final int MAGIC = 0x4d545243;
+    private static final int VERSION = 1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int mSize;
+    private long mOriginMillis;
+    private int[] mEventTimes = new int[INITIAL_CAPACITY];
+    private int[] mDownTimes = new int[INITIAL_CAPACITY];
+    private short[] mActions = new short[INITIAL_CAPACITY];
+    private int[] mSources = new int[INITIAL_CAPACITY];
+    /** Index of the first pointer of each event, and of the end of the pointers. */
+    private int[] mPointerStarts = new int[INITIAL_CAPACITY + 1];
+
+    private int[] mPointerIds = new int[INITIAL_CAPACITY];
+    private float[] mXs = new float[INITIAL_CAPACITY];
+    private float[] mYs = new float[INITIAL_CAPACITY];
+
+    /**
+     * Appends an event, whose times are in milliseconds of a monotonic clock and whose
+     * {@code pointerCount} pointers are described by the first elements of the arrays.
+     */
+    public void add(long eventTimeMillis, long downTimeMillis, int action, int source,
+            int pointerCount, int[] pointerIds, float[] xs, float[] ys) {
+        if (mSize == 0) {
+            mOriginMillis = eventTimeMillis;
+        }
+        ensureEventCapacity(mSize + 1);
+        ensurePointerCapacity(mPointerStarts[mSize] + pointerCount);
+        mEventTimes[mSize] = (int) (eventTimeMillis - mOriginMillis);
+        mDownTimes[mSize] = (int) (downTimeMillis - mOriginMillis);
+        mActions[mSize] = (short) action;
+        mSources[mSize] = source;
+
+        int start = mPointerStarts[mSize];
+        System.arraycopy(pointerIds, 0, mPointerIds, start, pointerCount);
+        System.arraycopy(xs, 0, mXs, start, pointerCount);
+        System.arraycopy(ys, 0, mYs, start, pointerCount);
+        mPointerStarts[++mSize] = start + pointerCount;
+    }
+
+    /** Returns the number of events. */
+    public int size() {
+        return mSize;
+    }
+
+    /** Returns the time of the event, in milliseconds since the first event. */
+    public long getEventTimeMillis(int index) {
+        return mEventTimes[index];
+    }
+
+    /** Returns the down time of the event, in milliseconds since the first event. */
+    public long getDownTimeMillis(int index) {
+        return mDownTimes[index];
+    }
+
+    /** Returns the time between the first and the last events, in milliseconds. */
+    public long getDurationMillis() {
+        return mSize == 0 ? 0 : mEventTimes[mSize - 1];
+    }
+
+    /** Returns the action of the event, including its pointer index. */
+    public int getAction(int index) {
+        return mActions[index];
+    }
+
+    /** Returns the source of the event. */
+    public int getSource(int index) {
+        return mSources[index];
+    }
+
+    /** Returns the number of pointers of the event. */
+    public int getPointerCount(int index) {
+        return mPointerStarts[index + 1] - mPointerStarts[index];
+    }
+
+    /** Returns the id of a pointer of the event. */
+    public int getPointerId(int index, int pointerIndex) {
+        return mPointerIds[mPointerStarts[index] + pointerIndex];
+    }
+
+    /** Returns the X coordinate of a pointer of the event. */
+    public float getX(int index, int pointerIndex) {
+        return mXs[mPointerStarts[index] + pointerIndex];
+    }
+
+    /** Returns the Y coordinate of a pointer of the event. */
+    public float getY(int index, int pointerIndex) {
+        return mYs[mPointerStarts[index] + pointerIndex];
+    }
+
+    /** Removes all the events. */
+    public void clear() {
+        mSize = 0;
+    }
+
+    /** Writes the trace, {@code out} being neither buffered nor closed. */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(mSize);
+        for (int i = 0; i < mSize; ++i) {
+            int pointerCount = getPointerCount(i);
+
+            data.writeInt(mEventTimes[i]);
+            data.writeInt(mDownTimes[i]);
+            data.writeShort(mActions[i]);
+            data.writeInt(mSources[i]);
+            data.writeByte(pointerCount);
+            for (int j = mPointerStarts[i]; j < mPointerStarts[i + 1]; ++j) {
+                data.writeByte(mPointerIds[j]);
+                data.writeFloat(mXs[j]);
+                data.writeFloat(mYs[j]);
+            }
+        }
+        data.flush();
+    }
+
+    /** Reads a trace written by {@link #writeTo(OutputStream)}, {@code in} being not closed. */
+    public static MotionTrace readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a motion trace");
+        }
+        int version = data.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported motion trace version " + version);
+        }
+        int size = data.readInt();
+        MotionTrace trace = new MotionTrace();
+        int[] pointerIds = new int[0];
+        float[] xs = new float[0];
+        float[] ys = new float[0];
+
+        for (int i = 0; i < size; ++i) {
+            int eventTimeMillis = data.readInt();
+            int downTimeMillis = data.readInt();
+            int action = data.readShort();
+            int source = data.readInt();
+            int pointerCount = data.readUnsignedByte();
+
+            if (pointerCount > pointerIds.length) {
+                pointerIds = new int[pointerCount];
+                xs = new float[pointerCount];
+                ys = new float[pointerCount];
+            }
+            for (int j = 0; j < pointerCount; ++j) {
+                pointerIds[j] = data.readByte();
+                xs[j] = data.readFloat();
+                ys[j] = data.readFloat();
+            }
+            trace.add(eventTimeMillis, downTimeMillis, action, source, pointerCount, pointerIds,
+                    xs, ys);
+        }
+        return trace;
+    }
+
+    private void ensureEventCapacity(int capacity) {
+        if (capacity > mEventTimes.length) {
+            int newCapacity = Math.max(capacity, mEventTimes.length * 2);
+
+            mEventTimes = Arrays.copyOf(mEventTimes, newCapacity);
+            mDownTimes = Arrays.copyOf(mDownTimes, newCapacity);
+            mActions = Arrays.copyOf(mActions, newCapacity);
+            mSources = Arrays.copyOf(mSources, newCapacity);
+            mPointerStarts = Arrays.copyOf(mPointerStarts, newCapacity + 1);
+        }
+    }
+
+    private void ensurePointerCapacity(int capacity) {
+        if (capacity > mPointerIds.length) {
+            int newCapacity = Math.max(capacity, mPointerIds.length * 2);
+
+            mPointerIds = Arrays.copyOf(mPointerIds, newCapacity);
+            mXs = Arrays.copyOf(mXs, newCapacity);
+            mYs = Arrays.copyOf(mYs, newCapacity);
+        }
+    }
+}
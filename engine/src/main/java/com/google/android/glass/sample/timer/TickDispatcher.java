@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Delivers the ticks of all its subscribed {@link TickListener} from a single posted callback, so
+ * that N listeners whose ticks are aligned cost a single wakeup instead of N.
+ * <p>
+ * Every next tick of a listener is scheduled from the delay it returns right after its previous
+ * tick, typically computed from an absolute deadline, so that the lateness of the callback never
+ * accumulates into drift. Subclasses provide the time and the posting of the callback, e.g. from a
+ * {@code Handler}.
+ */
+public abstract class TickDispatcher {
+
+    /**
+     * Interface to listen for ticks.
+     */
+    public interface TickListener {
+        /** Notified once per tick. */
+        public void onTick();
+
+        /**
+         * Returns the delay in milliseconds until the next tick, or {@link Long#MAX_VALUE} for no
+         * more ticks; called when subscribing and after each tick.
+         */
+        public long getNextTickDelayMillis();
+    }
+
+    /** Subscribed listener and the time of its next tick. */
+    private static class Subscription {
+        final TickListener mListener;
+        long mNextTickMillis;
+        /** Position in {@link #mHeap}, or -1 while no tick is scheduled. */
+        int mHeapIndex = -1;
+        boolean mRemoved;
+
+        Subscription(TickListener listener) {
+            mListener = listener;
+        }
+    }
+
+    private static final long NO_TICK = Long.MAX_VALUE;
+
+    private final Runnable mTickRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            mPostedMillis = NO_TICK;
+            dispatchDueTicks();
+            scheduleNextTick();
+        }
+    };
+
+    private final IdentityHashMap<TickListener, Subscription> mSubscriptions =
+            new IdentityHashMap<TickListener, Subscription>();
+    /** Binary min-heap of the subscriptions with a next tick, ordered by its time. */
+    private Subscription[] mHeap = new Subscription[8];
+    private int mHeapSize;
+    /** Reusable array of the subscriptions due in {@link #dispatchDueTicks()}. */
+    private Subscription[] mDueSubscriptions = new Subscription[8];
+
+    /** Time at which {@link #mTickRunnable} is posted, or {@link #NO_TICK}. */
+    private long mPostedMillis = NO_TICK;
+
+    /**
+     * Subscribes a {@link TickListener}, whose first tick happens after the delay it returns.
+     * Listeners whose ticks fall on the same time are notified from the same callback.
+     */
+    public void subscribe(TickListener listener) {
+        if (mSubscriptions.containsKey(listener)) {
+            return;
+        }
+        Subscription subscription = new Subscription(listener);
+
+        mSubscriptions.put(listener, subscription);
+        subscription.mNextTickMillis = getNextTickMillis(listener);
+        if (subscription.mNextTickMillis != NO_TICK) {
+            addToHeap(subscription);
+        }
+        scheduleNextTick();
+    }
+
+    /** Unsubscribes a {@link TickListener}, stopping the ticks once none is left. */
+    public void unsubscribe(TickListener listener) {
+        Subscription subscription = mSubscriptions.remove(listener);
+
+        if (subscription != null) {
+            subscription.mRemoved = true;
+            if (subscription.mHeapIndex >= 0) {
+                removeFromHeap(subscription.mHeapIndex);
+            }
+            scheduleNextTick();
+        }
+    }
+
+    /** Returns whether or not the {@link TickListener} is subscribed. */
+    public boolean isSubscribed(TickListener listener) {
+        return mSubscriptions.containsKey(listener);
+    }
+
+    /**
+     * Notifies the subscribed {@link TickListener} whose tick is due, at most once each, visible
+     * for testing.
+     */
+    void dispatchDueTicks() {
+        long nowMillis = nowMillis();
+        int dueCount = 0;
+
+        while (mHeapSize > 0 && mHeap[0].mNextTickMillis <= nowMillis) {
+            if (dueCount == mDueSubscriptions.length) {
+                mDueSubscriptions = Arrays.copyOf(mDueSubscriptions, dueCount * 2);
+            }
+            mDueSubscriptions[dueCount++] = mHeap[0];
+            removeFromHeap(0);
+        }
+        for (int i = 0; i < dueCount; ++i) {
+            Subscription subscription = mDueSubscriptions[i];
+
+            mDueSubscriptions[i] = null;
+            // Listeners can unsubscribe themselves or others when notified.
+            if (!subscription.mRemoved) {
+                onTickDispatched(nowMillis() - subscription.mNextTickMillis);
+                subscription.mListener.onTick();
+            }
+            if (!subscription.mRemoved) {
+                subscription.mNextTickMillis = getNextTickMillis(subscription.mListener);
+                if (subscription.mNextTickMillis != NO_TICK) {
+                    addToHeap(subscription);
+                }
+            }
+        }
+    }
+
+    /** Posts {@link #mTickRunnable} at the earliest tick, if it is not already. */
+    private void scheduleNextTick() {
+        long nextTickMillis = mHeapSize > 0 ? mHeap[0].mNextTickMillis : NO_TICK;
+
+        if (nextTickMillis != mPostedMillis) {
+            if (mPostedMillis != NO_TICK) {
+                removeCallbacks(mTickRunnable);
+            }
+            mPostedMillis = nextTickMillis;
+            if (nextTickMillis != NO_TICK) {
+                postAtTime(mTickRunnable, nextTickMillis);
+            }
+        }
+    }
+
+    private long getNextTickMillis(TickListener listener) {
+        long delayMillis = listener.getNextTickDelayMillis();
+
+        return delayMillis == NO_TICK ? NO_TICK : nowMillis() + Math.max(0, delayMillis);
+    }
+
+    private void addToHeap(Subscription subscription) {
+        if (mHeapSize == mHeap.length) {
+            mHeap = Arrays.copyOf(mHeap, mHeapSize * 2);
+        }
+        mHeap[mHeapSize] = subscription;
+        subscription.mHeapIndex = mHeapSize;
+        siftUp(mHeapSize++);
+    }
+
+    private void removeFromHeap(int index) {
+        Subscription last = mHeap[--mHeapSize];
+
+        mHeap[index].mHeapIndex = -1;
+        mHeap[mHeapSize] = null;
+        if (index < mHeapSize) {
+            mHeap[index] = last;
+            last.mHeapIndex = index;
+            siftDown(index);
+            siftUp(last.mHeapIndex);
+        }
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+
+            if (mHeap[parent].mNextTickMillis <= mHeap[index].mNextTickMillis) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int child = 2 * index + 1;
+
+            if (child >= mHeapSize) {
+                return;
+            }
+            if (child + 1 < mHeapSize
+                    && mHeap[child + 1].mNextTickMillis < mHeap[child].mNextTickMillis) {
+                ++child;
+            }
+            if (mHeap[index].mNextTickMillis <= mHeap[child].mNextTickMillis) {
+                return;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Subscription subscription = mHeap[i];
+
+        mHeap[i] = mHeap[j];
+        mHeap[i].mHeapIndex = i;
+        mHeap[j] = subscription;
+        subscription.mHeapIndex = j;
+    }
+
+    /** Called before each tick with its lateness in milliseconds, does nothing by default. */
+    protected void onTickDispatched(long latenessMillis) {
+        // Nothing to do here.
+    }
+
+    /** Runs the {@link Runnable} once {@link #nowMillis()} reaches {@code timeMillis}. */
+    protected abstract void postAtTime(Runnable runnable, long timeMillis);
+
+    /** Removes a {@link Runnable} posted and not run yet. */
+    protected abstract void removeCallbacks(Runnable runnable);
+
+    /** Returns the current time in milliseconds, from the base of {@link #postAtTime}. */
+    protected abstract long nowMillis();
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+/**
+ * Formats time components into caller-owned {@code char} buffers without allocating, producing
+ * the same output as {@code String.format("%02d", value)}.
+ * <p>
+ * The buffers are meant to be passed to {@code TextView.setText(char[], int, int)}, which keeps a
+ * reference to them: each {@code TextView} must therefore own its buffer.
+ */
+public final class TimeFormatter {
+
+    /** Size of a buffer large enough to hold any formatted {@code long}. */
+    public static final int BUFFER_SIZE = 20;
+
+    /** Precomputed tens and ones digits of the values from 0 to 99. */
+    private static final char[] TENS = new char[100];
+    private static final char[] ONES = new char[100];
+
+    static {
+        for (int i = 0; i < 100; ++i) {
+            TENS[i] = (char) ('0' + i / 10);
+            ONES[i] = (char) ('0' + i % 10);
+        }
+    }
+
+    private TimeFormatter() {
+    }
+
+    /**
+     * Formats {@code value} on at least two digits into {@code buffer}, which must hold at least
+     * {@link #BUFFER_SIZE} characters, and returns the number of characters written.
+     */
+    public static int formatTwoDigits(long value, char[] buffer) {
+        if (value >= 0 && value < 100) {
+            int index = (int) value;
+
+            buffer[0] = TENS[index];
+            buffer[1] = ONES[index];
+            return 2;
+        }
+
+        // Slow path for out of range values: write the digits from the least significant one,
+        // working on negative values so that Long.MIN_VALUE is handled, then reverse them.
+        int length = 0;
+        long remaining = value < 0 ? value : -value;
+
+        while (remaining != 0) {
+            buffer[length++] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        }
+        if (value < 0) {
+            buffer[length++] = '-';
+        }
+        for (int i = 0, j = length - 1; i < j; ++i, --j) {
+            char c = buffer[i];
+
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+        return length;
+    }
+}
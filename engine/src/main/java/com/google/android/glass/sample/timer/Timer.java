@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Model holding the Timer state.
+ * <p>
+ * The state is published through lock-free atomic updates so that a same timer can safely be
+ * driven and read from several threads, e.g. binder threads of the {@code TimerService}.
+ */
+public class Timer {
+
+    /**
+     * Interface to listen for changes on the {@link Timer}.
+     */
+    public interface TimerListener {
+        /** Timer has started. */
+        public void onStart();
+        /** Timer has been paused. */
+        public void onPause();
+        /** Timer has been reset */
+        public void onReset();
+    }
+
+    private static final TimerListener[] NO_LISTENERS = new TimerListener[0];
+
+    /** Source of the monotonically assigned {@link Timer} identifiers. */
+    private static final AtomicLong sNextId = new AtomicLong(1);
+
+    private final long mId;
+
+    private final Clock mClock;
+
+    /** Current state, replaced by compare-and-set on every transition. */
+    private final AtomicReference<State> mState = new AtomicReference<State>();
+
+    /**
+     * Copy-on-write array of listeners: replaced, never mutated, when a listener is added or
+     * removed so that notifying them only iterates over a snapshot.
+     */
+    private volatile TimerListener[] mListeners = NO_LISTENERS;
+
+    /**
+     * Immutable state of a {@link Timer}, so that readers always see the fields of a same
+     * transition without locking.
+     */
+    static final class State {
+        final long mDurationMillis;
+        final boolean mStarted;
+        final boolean mPaused;
+        /** Start time, shifted forward by the time spent paused. */
+        final long mStartTimeNanos;
+        final long mPauseTimeNanos;
+
+        State(long durationMillis, boolean started, boolean paused, long startTimeNanos,
+                long pauseTimeNanos) {
+            mDurationMillis = durationMillis;
+            mStarted = started;
+            mPaused = paused;
+            mStartTimeNanos = startTimeNanos;
+            mPauseTimeNanos = pauseTimeNanos;
+        }
+    }
+
+    public Timer() {
+        this(0);
+    }
+
+    /**
+     * Creates a {@link Timer} measuring time with {@link Clock#SYSTEM}.
+     */
+    public Timer(long durationMillis) {
+        this(Clock.SYSTEM, durationMillis);
+    }
+
+    public Timer(Clock clock, long durationMillis) {
+        this(sNextId.getAndIncrement(), clock, durationMillis);
+    }
+
+    /**
+     * Creates a {@link Timer} keeping {@code id}, e.g. the identifier it had before the process
+     * restarted, unless it may already be assigned in this process in which case a new identifier
+     * is assigned.
+     */
+    Timer(Clock clock, long durationMillis, long id) {
+        this(reserveId(id), clock, durationMillis);
+    }
+
+    private Timer(long id, Clock clock, long durationMillis) {
+        mId = id;
+        mClock = clock;
+        mState.set(new State(0, false, false, 0, 0));
+        setDurationMillis(durationMillis);
+    }
+
+    /** Returns {@code id} and never assigns it again if it is not assigned yet, else a new id. */
+    private static long reserveId(long id) {
+        while (true) {
+            long nextId = sNextId.get();
+
+            if (id < nextId) {
+                return sNextId.getAndIncrement();
+            }
+            if (sNextId.compareAndSet(nextId, id + 1)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the timer's unique identifier, assigned in increasing order at construction time.
+     */
+    public long getId() {
+        return mId;
+    }
+
+    /**
+     * Sets the timer's duration in milliseconds.
+     */
+    public void setDurationMillis(long durationMillis) {
+        State state;
+        do {
+            state = mState.get();
+        } while (!mState.compareAndSet(state, new State(durationMillis, state.mStarted,
+                state.mPaused, state.mStartTimeNanos, state.mPauseTimeNanos)));
+        notifyReset();
+    }
+
+    /**
+     * Gets the timer's duration in milliseconds.
+     */
+    public long getDurationMillis() {
+        return mState.get().mDurationMillis;
+    }
+
+    /**
+     * Returns whether or not the timer is running.
+     */
+    public boolean isRunning() {
+        State state = mState.get();
+
+        return state.mStarted && !state.mPaused;
+    }
+
+    /**
+     * Returns whether or not the timer has been started.
+     */
+    public boolean isStarted() {
+        return mState.get().mStarted;
+    }
+
+    /**
+     * Gets the remaining time in milliseconds.
+     */
+    public long getRemainingTimeMillis() {
+        return getRemainingTimeMillis(mState.get());
+    }
+
+    /**
+     * Returns an immutable {@link TimerSnapshot} of the timer, read from a single state.
+     */
+    public TimerSnapshot getSnapshot() {
+        State state = mState.get();
+
+        return new TimerSnapshot(mId, state.mDurationMillis, getRemainingTimeMillis(state),
+                state.mStarted, state.mStarted && !state.mPaused);
+    }
+
+    private long getRemainingTimeMillis(State state) {
+        long remainingTime = state.mDurationMillis;
+
+        if (state.mStarted) {
+            long nowNanos = state.mPaused ? state.mPauseTimeNanos : mClock.nanoTime();
+
+            // The clock may have been read before the one of a concurrent transition.
+            remainingTime -= TimeUnit.NANOSECONDS.toMillis(
+                    Math.max(0, nowNanos - state.mStartTimeNanos));
+        }
+
+        return remainingTime;
+    }
+
+    /**
+     * Returns the {@link Clock} time, in nanoseconds, at which the remaining time reaches zero, or
+     * {@link Long#MAX_VALUE} if the timer is not running.
+     */
+    public long getDeadlineNanos() {
+        return getDeadlineNanos(mState.get());
+    }
+
+    /**
+     * Returns the delay in milliseconds, rounded up, until the remaining time next crosses a whole
+     * second, or {@link Long#MAX_VALUE} if the timer is not running.
+     * <p>
+     * The delay is computed from the absolute deadline, so that a caller rescheduling itself
+     * with it never accumulates its own lateness.
+     */
+    public long getMillisToNextSecond() {
+        long deadlineNanos = getDeadlineNanos(mState.get());
+
+        if (deadlineNanos == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        long secondNanos = TimeUnit.SECONDS.toNanos(1);
+        // Past the deadline, the elapsed overtime crosses whole seconds at the same instants.
+        long nextSecondNanos = (deadlineNanos - mClock.nanoTime()) % secondNanos;
+
+        if (nextSecondNanos <= 0) {
+            nextSecondNanos += secondNanos;
+        }
+        return (nextSecondNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1)
+                / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Starts the timer.
+     */
+    public void start() {
+        State state;
+        State started;
+        do {
+            state = mState.get();
+            long nowNanos = mClock.nanoTime();
+
+            if (!state.mStarted) {
+                started = new State(state.mDurationMillis, true, false, nowNanos, 0);
+            } else if (state.mPaused) {
+                // Never resume before the pause, whichever thread read the clock first.
+                long pausedNanos = Math.max(0, nowNanos - state.mPauseTimeNanos);
+
+                started = new State(state.mDurationMillis, true, false,
+                        state.mStartTimeNanos + pausedNanos, 0);
+            } else {
+                started = state;
+                break;
+            }
+        } while (!mState.compareAndSet(state, started));
+        notifyStart();
+    }
+
+    /**
+     * Pauses the timer.
+     */
+    public void pause() {
+        State state;
+        State paused;
+        do {
+            state = mState.get();
+            if (!state.mStarted) {
+                return;
+            }
+            if (state.mPaused) {
+                paused = state;
+                break;
+            }
+            long nowNanos = Math.max(mClock.nanoTime(), state.mStartTimeNanos);
+
+            paused = new State(state.mDurationMillis, true, true, state.mStartTimeNanos,
+                    nowNanos);
+        } while (!mState.compareAndSet(state, paused));
+        notifyPause();
+    }
+
+    /**
+     * Resets the timer.
+     */
+    public void reset() {
+        State state;
+        do {
+            state = mState.get();
+        } while (!mState.compareAndSet(state,
+                new State(state.mDurationMillis, false, false, 0, 0)));
+        notifyPause();
+        notifyReset();
+    }
+
+    /**
+     * Adds a {@link TimerListener}, notified after the already added ones.
+     */
+    public synchronized void addListener(TimerListener listener) {
+        TimerListener[] listeners = new TimerListener[mListeners.length + 1];
+
+        System.arraycopy(mListeners, 0, listeners, 0, mListeners.length);
+        listeners[mListeners.length] = listener;
+        mListeners = listeners;
+    }
+
+    /**
+     * Removes a previously added {@link TimerListener}, returns whether or not it was found.
+     */
+    public synchronized boolean removeListener(TimerListener listener) {
+        TimerListener[] listeners = mListeners;
+
+        for (int i = 0; i < listeners.length; ++i) {
+            if (listeners[i] == listener) {
+                TimerListener[] remaining = listeners.length == 1
+                        ? NO_LISTENERS : new TimerListener[listeners.length - 1];
+
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners, i + 1, remaining, i, listeners.length - i - 1);
+                mListeners = remaining;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getDeadlineNanos(State state) {
+        if (!state.mStarted || state.mPaused) {
+            return Long.MAX_VALUE;
+        }
+        return state.mStartTimeNanos + TimeUnit.MILLISECONDS.toNanos(state.mDurationMillis);
+    }
+
+    private void notifyStart() {
+        for (TimerListener listener : mListeners) {
+            listener.onStart();
+        }
+    }
+
+    private void notifyPause() {
+        for (TimerListener listener : mListeners) {
+            listener.onPause();
+        }
+    }
+
+    private void notifyReset() {
+        for (TimerListener listener : mListeners) {
+            listener.onReset();
+        }
+    }
+
+    /** Returns a consistent snapshot of the state, visible for the {@link TimerJournal}. */
+    State getState() {
+        return mState.get();
+    }
+
+    /**
+     * Restores a state previously read with {@link #getState()}, visible for the
+     * {@link TimerJournal}. The listeners are not notified.
+     */
+    void restore(boolean started, boolean paused, long startTimeNanos, long pauseTimeNanos) {
+        State state;
+        do {
+            state = mState.get();
+        } while (!mState.compareAndSet(state, new State(state.mDurationMillis, started, paused,
+                startTimeNanos, pauseTimeNanos)));
+    }
+}
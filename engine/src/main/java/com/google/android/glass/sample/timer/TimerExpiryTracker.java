@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Central record of the deadlines of the running {@link Timer}, backed by a {@link TimingWheel},
+ * which knows which timer expires next.
+ * <p>
+ * The tracker does not own a thread: its {@link Callback} is told when the earliest deadline
+ * changes and must call {@link #advance()} by then.
+ */
+public class TimerExpiryTracker {
+
+    /**
+     * Interface to drive the tracker and to listen for expired timers.
+     */
+    public interface Callback {
+        /**
+         * The tracker must next be advanced at {@code deadlineMillis}, in milliseconds of the
+         * {@link Clock}, or never if {@link Long#MAX_VALUE}. Can be called from any thread
+         * transitioning a tracked {@link Timer}.
+         */
+        public void onNextDeadlineChanged(long deadlineMillis);
+
+        /** The running {@link Timer} reached its deadline. */
+        public void onExpired(Timer timer);
+    }
+
+    /** Resolution of the deadlines. */
+    // Visible for testing.
+    static final long TICK_MILLIS = 10;
+
+    /** {@link Timer.TimerListener} rescheduling the deadline of a tracked {@link Timer}. */
+    private class Tracker implements Timer.TimerListener {
+        private final Timer mTimer;
+        private TimingWheel.Entry<Timer> mEntry;
+
+        Tracker(Timer timer) {
+            mTimer = timer;
+        }
+
+        @Override
+        public void onStart() {
+            reschedule(this);
+        }
+
+        @Override
+        public void onPause() {
+            reschedule(this);
+        }
+
+        @Override
+        public void onReset() {
+            reschedule(this);
+        }
+    }
+
+    private final Clock mClock;
+    private final Callback mCallback;
+    private final TimingWheel<Timer> mWheel;
+    private final HashMap<Long, Tracker> mTrackers = new HashMap<Long, Tracker>();
+    private final TimingWheel.ExpiryHandler<Timer> mExpiryHandler =
+            new TimingWheel.ExpiryHandler<Timer>() {
+
+        @Override
+        public void onExpired(Timer timer) {
+            Tracker tracker = mTrackers.get(timer.getId());
+
+            if (tracker != null) {
+                tracker.mEntry = null;
+            }
+            mCallback.onExpired(timer);
+        }
+    };
+
+    private long mNextDeadlineMillis = Long.MAX_VALUE;
+
+    public TimerExpiryTracker(Clock clock, Callback callback) {
+        mClock = clock;
+        mCallback = callback;
+        mWheel = new TimingWheel<Timer>(TICK_MILLIS, nowMillis());
+    }
+
+    /** Starts tracking the deadline of the {@link Timer}, whenever it is running. */
+    public synchronized void track(Timer timer) {
+        if (mTrackers.containsKey(timer.getId())) {
+            return;
+        }
+        Tracker tracker = new Tracker(timer);
+
+        mTrackers.put(timer.getId(), tracker);
+        timer.addListener(tracker);
+        reschedule(tracker);
+    }
+
+    /** Stops tracking the deadline of the {@link Timer}. */
+    public synchronized void untrack(Timer timer) {
+        Tracker tracker = mTrackers.remove(timer.getId());
+
+        if (tracker != null) {
+            timer.removeListener(tracker);
+            if (tracker.mEntry != null) {
+                mWheel.cancel(tracker.mEntry);
+                tracker.mEntry = null;
+            }
+            updateNextDeadline();
+        }
+    }
+
+    /**
+     * Notifies the {@link Callback} of the timers whose deadline passed, in deadline order, and
+     * returns their count.
+     */
+    public synchronized int advance() {
+        int expiredCount = mWheel.advanceTo(nowMillis(), mExpiryHandler);
+
+        updateNextDeadline();
+        return expiredCount;
+    }
+
+    /**
+     * Notifies the {@link Callback} of the tracked {@link Timer} right away if its deadline passed
+     * but not yet the tick it was rounded up to, e.g. when woken up by an exact alarm, and returns
+     * whether or not it expired. The callback is never notified twice of the same deadline.
+     */
+    public synchronized boolean expireIfDue(Timer timer) {
+        Tracker tracker = mTrackers.get(timer.getId());
+
+        if (tracker == null || tracker.mEntry == null || !timer.isRunning()
+                || timer.getRemainingTimeMillis() > 0) {
+            return false;
+        }
+        mWheel.cancel(tracker.mEntry);
+        tracker.mEntry = null;
+        updateNextDeadline();
+        mCallback.onExpired(timer);
+        return true;
+    }
+
+    /** Returns the number of running timers waiting for their deadline. */
+    public synchronized int getPendingCount() {
+        return mWheel.size();
+    }
+
+    private synchronized void reschedule(Tracker tracker) {
+        if (tracker.mEntry != null) {
+            mWheel.cancel(tracker.mEntry);
+            tracker.mEntry = null;
+        }
+        if (tracker.mTimer.isRunning()) {
+            long deadlineMillis = nowMillis() + tracker.mTimer.getRemainingTimeMillis();
+
+            tracker.mEntry = mWheel.schedule(tracker.mTimer, deadlineMillis);
+        }
+        updateNextDeadline();
+    }
+
+    private void updateNextDeadline() {
+        long nextDeadlineMillis = mWheel.getNextDeadlineMillis();
+
+        if (nextDeadlineMillis != mNextDeadlineMillis) {
+            mNextDeadlineMillis = nextDeadlineMillis;
+            mCallback.onNextDeadlineChanged(nextDeadlineMillis);
+        }
+    }
+
+    private long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mClock.nanoTime());
+    }
+}
@@ -0,0 +1,568 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Crash-safe, append-only, journal of the {@link Timer} commands, from which the timers can be
+ * recovered after the process has been killed.
+ * <p>
+ * Each record holds the complete state of a timer so that replaying the journal only needs to keep
+ * the latest record of each timer. Records are batched in memory and written then synced to the
+ * storage on a background thread at most every {@link #SYNC_DELAY_MILLIS}. Once the journal holds
+ * {@link #SNAPSHOT_THRESHOLD} records, it is compacted into a snapshot of the current states.
+ * <p>
+ * The recorded times come from the {@link Clock} of the timers, which must keep counting across
+ * process restarts, e.g. {@code SystemClock.elapsedRealtimeNanos()}. Since such a clock restarts
+ * with the device, the files are stamped with the wall clock time of the boot and discarded when
+ * recovered after another boot.
+ */
+public class TimerJournal {
+
+    /** Journal command: the timer has been started or resumed. */
+    public static final byte OP_START = 1;
+    /** Journal command: the timer has been paused. */
+    public static final byte OP_PAUSE = 2;
+    /** Journal command: the timer has been reset or its duration changed. */
+    public static final byte OP_RESET = 3;
+    /** Journal command: the timer has been stopped and removed. */
+    public static final byte OP_STOP = 4;
+
+    // Visible for testing.
+    static final String JOURNAL_FILE_NAME = "timers.journal";
+    static final String SNAPSHOT_FILE_NAME = "timers.snapshot";
+    static final long SYNC_DELAY_MILLIS = 100;
+    static final int SNAPSHOT_THRESHOLD = 256;
+    /** Maximum difference between the boot times of the same boot, e.g. after a clock update. */
+    static final long BOOT_TIME_TOLERANCE_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private static final Logger LOG = Logger.getLogger(TimerJournal.class.getName());
+
+    /** Header identifying the journal and snapshot files. */
+    private static final int MAGIC = 0x544d5232;
+
+    private static final byte FLAG_STARTED = 1;
+    private static final byte FLAG_PAUSED = 2;
+
+    /** Latest recorded state of a {@link Timer}. */
+    private static final class Record {
+        private byte mOp;
+        private long mTimerId;
+        private long mDurationMillis;
+        private byte mFlags;
+        private long mStartTimeNanos;
+        private long mPauseTimeNanos;
+    }
+
+    /** {@link Timer.TimerListener} journaling the transitions of a {@link Timer}. */
+    private class Recorder implements Timer.TimerListener {
+        private final Timer mTimer;
+
+        Recorder(Timer timer) {
+            mTimer = timer;
+        }
+
+        @Override
+        public void onStart() {
+            record(OP_START, mTimer);
+        }
+
+        @Override
+        public void onPause() {
+            record(OP_PAUSE, mTimer);
+        }
+
+        @Override
+        public void onReset() {
+            record(OP_RESET, mTimer);
+        }
+    }
+
+    private static final Comparator<Record> ID_ORDER = new Comparator<Record>() {
+
+        @Override
+        public int compare(Record lhs, Record rhs) {
+            return lhs.mTimerId < rhs.mTimerId ? -1 : (lhs.mTimerId == rhs.mTimerId ? 0 : 1);
+        }
+    };
+
+    private final File mJournalFile;
+    private final File mSnapshotFile;
+    private final ScheduledExecutorService mExecutor;
+    private final Runnable mSyncRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            sync();
+        }
+    };
+
+    /** Latest state of every timer, written to the snapshot when compacting the journal. */
+    private final LinkedHashMap<Long, Record> mStates = new LinkedHashMap<Long, Record>();
+    /** Ids of the timers stopped since the recovery, whose late transitions are ignored. */
+    private final HashSet<Long> mStoppedIds = new HashSet<Long>();
+    /** Records not yet written to the journal file. */
+    private final ByteArrayOutputStream mPendingBytes = new ByteArrayOutputStream();
+    private final DataOutputStream mPending = new DataOutputStream(mPendingBytes);
+
+    private int mJournalRecordCount;
+    private boolean mSyncScheduled;
+    private long mGeneration;
+    private long mBootTimeMillis;
+    private boolean mClosed;
+
+    /** Only accessed from the executor thread. */
+    private FileOutputStream mJournalStream;
+
+    /** Creates a journal stored in {@code directory}, syncing from a background thread. */
+    public TimerJournal(File directory) {
+        this(directory, Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "TimerJournal");
+
+                thread.setDaemon(true);
+                return thread;
+            }
+        }));
+    }
+
+    // Visible for testing.
+    TimerJournal(File directory, ScheduledExecutorService executor) {
+        directory.mkdirs();
+        mJournalFile = new File(directory, JOURNAL_FILE_NAME);
+        mSnapshotFile = new File(directory, SNAPSHOT_FILE_NAME);
+        mExecutor = executor;
+    }
+
+    /**
+     * Recovers the timers from the snapshot and the journal, then compacts them into a new
+     * snapshot keyed by the ids of the recovered timers, written in the background. Must be called
+     * before recording anything, and before creating any other {@link Timer} for the recovered
+     * timers to keep their ids.
+     * <p>
+     * Nothing is recovered if the files were written during another boot than the one started at
+     * {@code bootTimeMillis}, the wall clock time at which {@code clock} started counting, or if a
+     * recorded time is later than the current time of {@code clock}; in both cases the clock was
+     * reset by a reboot.
+     */
+    public List<Timer> recover(Clock clock, long bootTimeMillis) {
+        LinkedHashMap<Long, Record> states = new LinkedHashMap<Long, Record>();
+
+        synchronized (this) {
+            mBootTimeMillis = bootTimeMillis;
+            mGeneration = readSnapshot(states);
+            readJournal(mGeneration, states);
+        }
+
+        long nowNanos = clock.nanoTime();
+        for (Record state : states.values()) {
+            if ((state.mFlags & FLAG_STARTED) != 0 && (state.mStartTimeNanos > nowNanos
+                    || ((state.mFlags & FLAG_PAUSED) != 0 && state.mPauseTimeNanos > nowNanos))) {
+                LOG.info("Clock reset since the journal was written, discarding it");
+                states.clear();
+                break;
+            }
+        }
+
+        // Restore the ids in increasing order so that none is skipped over by a larger one.
+        List<Record> records = new ArrayList<Record>(states.values());
+        Collections.sort(records, ID_ORDER);
+
+        List<Timer> timers = new ArrayList<Timer>(records.size());
+        synchronized (this) {
+            mStates.clear();
+            for (Record state : records) {
+                Timer timer = new Timer(clock, state.mDurationMillis, state.mTimerId);
+
+                timer.restore((state.mFlags & FLAG_STARTED) != 0,
+                              (state.mFlags & FLAG_PAUSED) != 0,
+                              state.mStartTimeNanos,
+                              state.mPauseTimeNanos);
+                state.mTimerId = timer.getId();
+                mStates.put(state.mTimerId, state);
+                timers.add(timer);
+            }
+            // Force a snapshot so that the previous ids of the timers which could not keep them
+            // never mix with the new ones.
+            mJournalRecordCount = SNAPSHOT_THRESHOLD;
+            mSyncScheduled = true;
+            mExecutor.execute(mSyncRunnable);
+        }
+        return timers;
+    }
+
+    /**
+     * Returns a {@link Timer.TimerListener} journaling the transitions of {@code timer}, to add to
+     * its listeners.
+     */
+    public Timer.TimerListener newRecorder(Timer timer) {
+        return new Recorder(timer);
+    }
+
+    /**
+     * Records a command with the current state of the {@link Timer}, unless it was stopped or the
+     * journal is closed.
+     */
+    public synchronized void record(byte op, Timer timer) {
+        if (mClosed || mStoppedIds.contains(timer.getId())) {
+            return;
+        }
+        Timer.State timerState = timer.getState();
+        Record state = mStates.get(timer.getId());
+
+        if (state == null) {
+            state = new Record();
+            state.mTimerId = timer.getId();
+            mStates.put(state.mTimerId, state);
+        }
+        state.mOp = op;
+        state.mDurationMillis = timerState.mDurationMillis;
+        state.mFlags = (byte) ((timerState.mStarted ? FLAG_STARTED : 0)
+                | (timerState.mPaused ? FLAG_PAUSED : 0));
+        state.mStartTimeNanos = timerState.mStartTimeNanos;
+        state.mPauseTimeNanos = timerState.mPauseTimeNanos;
+        append(state);
+    }
+
+    /**
+     * Records that the {@link Timer} identified by {@code timerId} has been stopped, after which
+     * its transitions are no longer recorded.
+     */
+    public synchronized void recordStop(long timerId) {
+        if (mClosed) {
+            return;
+        }
+        Record state = mStates.remove(timerId);
+
+        mStoppedIds.add(timerId);
+        if (state != null) {
+            state.mOp = OP_STOP;
+            append(state);
+        }
+    }
+
+    /** Writes and syncs all the pending records, blocking until done. */
+    public void flush() {
+        synchronized (this) {
+            if (mClosed) {
+                return;
+            }
+        }
+        try {
+            mExecutor.submit(mSyncRunnable).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.log(Level.WARNING, "Unable to flush the journal", e);
+        }
+    }
+
+    /**
+     * Releases the background thread once the pending records are written and synced, without
+     * blocking. Nothing is recorded afterwards.
+     */
+    public synchronized void close() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        mExecutor.execute(mSyncRunnable);
+        mExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                closeJournalStream();
+            }
+        });
+        mExecutor.shutdown();
+    }
+
+    private void append(Record state) {
+        try {
+            writeRecord(mPending, state);
+        } catch (IOException e) {
+            // Can't happen when writing to memory.
+            throw new IllegalStateException(e);
+        }
+        ++mJournalRecordCount;
+        if (!mSyncScheduled) {
+            mSyncScheduled = true;
+            mExecutor.schedule(mSyncRunnable, SYNC_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes the pending records, or a new snapshot, and syncs them to the storage. The records
+     * are only dropped from memory once written: after a failure, they are written again with the
+     * next sync, as a snapshot since the journal file may not be consistent anymore.
+     */
+    private void sync() {
+        byte[] pendingBytes = null;
+        byte[] snapshotBytes = null;
+        int pendingLength;
+        int recordCount;
+        long generation;
+        long bootTimeMillis;
+
+        synchronized (this) {
+            mSyncScheduled = false;
+            pendingLength = mPendingBytes.size();
+            recordCount = mJournalRecordCount;
+            generation = mGeneration;
+            bootTimeMillis = mBootTimeMillis;
+            // Only append to a journal opened by this instance, whose header is known to match.
+            if (recordCount >= SNAPSHOT_THRESHOLD || mJournalStream == null) {
+                ++generation;
+                snapshotBytes = serializeStates(generation);
+            } else if (pendingLength > 0) {
+                pendingBytes = mPendingBytes.toByteArray();
+            } else {
+                return;
+            }
+        }
+
+        try {
+            if (snapshotBytes != null) {
+                writeSnapshot(snapshotBytes);
+                synchronized (this) {
+                    mGeneration = generation;
+                }
+                // Records of the previous generation are all part of the snapshot.
+                closeJournalStream();
+                openJournalStream(bootTimeMillis, generation);
+            } else {
+                writeJournal(pendingBytes);
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Unable to write the journal", e);
+            closeJournalStream();
+            return;
+        }
+
+        synchronized (this) {
+            // Records appended meanwhile are kept for the next sync, already scheduled.
+            byte[] remainingBytes = mPendingBytes.toByteArray();
+
+            mPendingBytes.reset();
+            mPendingBytes.write(
+                    remainingBytes, pendingLength, remainingBytes.length - pendingLength);
+            if (snapshotBytes != null) {
+                mJournalRecordCount -= recordCount;
+            }
+        }
+    }
+
+    private byte[] serializeStates(long generation) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeLong(mBootTimeMillis);
+            out.writeLong(generation);
+            out.writeInt(mStates.size());
+            for (Record state : mStates.values()) {
+                writeRecord(out, state);
+            }
+        } catch (IOException e) {
+            // Can't happen when writing to memory.
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Atomically replaces the snapshot file, overridable for testing. */
+    void writeSnapshot(byte[] snapshotBytes) throws IOException {
+        File tmpFile = new File(mSnapshotFile.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmpFile);
+
+        try {
+            out.write(snapshotBytes);
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!tmpFile.renameTo(mSnapshotFile)) {
+            throw new IOException("Unable to rename " + tmpFile + " to " + mSnapshotFile);
+        }
+    }
+
+    /** Appends records to the open journal file and syncs it, overridable for testing. */
+    void writeJournal(byte[] recordBytes) throws IOException {
+        mJournalStream.write(recordBytes);
+        mJournalStream.getFD().sync();
+    }
+
+    /** Truncates the journal file to the header of {@code generation}. */
+    private void openJournalStream(long bootTimeMillis, long generation) throws IOException {
+        FileOutputStream stream = new FileOutputStream(mJournalFile);
+        DataOutputStream out = new DataOutputStream(stream);
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeLong(bootTimeMillis);
+            out.writeLong(generation);
+            out.flush();
+            stream.getFD().sync();
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+        mJournalStream = stream;
+    }
+
+    private void closeJournalStream() {
+        if (mJournalStream != null) {
+            try {
+                mJournalStream.close();
+            } catch (IOException e) {
+                // Nothing left to do with this stream.
+            }
+            mJournalStream = null;
+        }
+    }
+
+    /** Reads the snapshot into {@code states} and returns its generation. */
+    private long readSnapshot(LinkedHashMap<Long, Record> states) {
+        if (!mSnapshotFile.exists()) {
+            return 0;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mSnapshotFile)));
+            if (in.readInt() != MAGIC) {
+                return 0;
+            }
+            if (!isCurrentBoot(in.readLong())) {
+                LOG.info("Rebooted since the snapshot was written, discarding it");
+                return 0;
+            }
+            long generation = in.readLong();
+            int count = in.readInt();
+
+            for (int i = 0; i < count; ++i) {
+                Record state = readRecord(in);
+
+                states.put(state.mTimerId, state);
+            }
+            return generation;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Unable to read the snapshot", e);
+            states.clear();
+            return 0;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /** Replays the journal on top of {@code states} if it belongs to {@code generation}. */
+    private void readJournal(long generation, LinkedHashMap<Long, Record> states) {
+        if (!mJournalFile.exists()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mJournalFile)));
+            if (in.readInt() != MAGIC || !isCurrentBoot(in.readLong())) {
+                // Unknown format, or written before a reboot.
+                return;
+            }
+            if (in.readLong() != generation) {
+                // Stale journal, already compacted into the snapshot.
+                return;
+            }
+            while (true) {
+                Record state = readRecord(in);
+
+                if (state.mOp == OP_STOP) {
+                    states.remove(state.mTimerId);
+                } else {
+                    states.put(state.mTimerId, state);
+                }
+            }
+        } catch (EOFException e) {
+            // End of the journal, possibly with a torn last record which is ignored.
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Unable to read the journal", e);
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /** Returns whether or not {@code bootTimeMillis}, read from a file, is the current boot. */
+    private boolean isCurrentBoot(long bootTimeMillis) {
+        return Math.abs(bootTimeMillis - mBootTimeMillis) <= BOOT_TIME_TOLERANCE_MILLIS;
+    }
+
+    private static void writeRecord(DataOutputStream out, Record state) throws IOException {
+        out.writeByte(state.mOp);
+        out.writeLong(state.mTimerId);
+        out.writeLong(state.mDurationMillis);
+        out.writeByte(state.mFlags);
+        out.writeLong(state.mStartTimeNanos);
+        out.writeLong(state.mPauseTimeNanos);
+    }
+
+    private static Record readRecord(DataInputStream in) throws IOException {
+        Record state = new Record();
+
+        state.mOp = in.readByte();
+        if (state.mOp < OP_START || state.mOp > OP_STOP) {
+            throw new IOException("Corrupted record " + state.mOp);
+        }
+        state.mTimerId = in.readLong();
+        state.mDurationMillis = in.readLong();
+        state.mFlags = in.readByte();
+        state.mStartTimeNanos = in.readLong();
+        state.mPauseTimeNanos = in.readLong();
+        return state;
+    }
+
+    private static void closeQuietly(DataInputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Nothing left to do with this stream.
+            }
+        }
+    }
+}
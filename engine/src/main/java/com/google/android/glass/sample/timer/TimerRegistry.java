@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Registry of {@link Timer} keyed by {@link Timer#getId()}, with lookups in constant time
+ * regardless of the number of registered timers.
+ *
+ * @param <V> type of the value associated with each registered {@link Timer}
+ */
+public class TimerRegistry<V> {
+
+    /** Registered {@link Timer} and its associated value. */
+    private static class Entry<V> {
+        private final Timer mTimer;
+        private final V mValue;
+
+        Entry(Timer timer, V value) {
+            mTimer = timer;
+            mValue = value;
+        }
+    }
+
+    /** Orders the timers by increasing {@link Timer#getId()}, i.e. by creation. */
+    private static final Comparator<Timer> ID_ORDER = new Comparator<Timer>() {
+
+        @Override
+        public int compare(Timer lhs, Timer rhs) {
+            return lhs.getId() < rhs.getId() ? -1 : (lhs.getId() == rhs.getId() ? 0 : 1);
+        }
+    };
+
+    private final HashMap<Long, Entry<V>> mEntries = new HashMap<Long, Entry<V>>();
+
+    /** Registers the {@link Timer} with its associated value. */
+    public void put(Timer timer, V value) {
+        mEntries.put(timer.getId(), new Entry<V>(timer, value));
+    }
+
+    /** Returns the {@link Timer} identified by {@code timerId} or {@code null} if none. */
+    public Timer findTimer(long timerId) {
+        Entry<V> entry = mEntries.get(timerId);
+
+        return entry != null ? entry.mTimer : null;
+    }
+
+    /** Returns a new list of the registered {@link Timer}, in creation order. */
+    public List<Timer> getTimers() {
+        List<Timer> timers = new ArrayList<Timer>(mEntries.size());
+
+        for (Entry<V> entry : mEntries.values()) {
+            timers.add(entry.mTimer);
+        }
+        Collections.sort(timers, ID_ORDER);
+        return timers;
+    }
+
+    /** Returns the value associated with the {@link Timer} identified by {@code timerId}. */
+    public V get(long timerId) {
+        Entry<V> entry = mEntries.get(timerId);
+
+        return entry != null ? entry.mValue : null;
+    }
+
+    /**
+     * Unregisters the {@link Timer} identified by {@code timerId} and returns its associated value.
+     */
+    public V remove(long timerId) {
+        Entry<V> entry = mEntries.remove(timerId);
+
+        return entry != null ? entry.mValue : null;
+    }
+
+    /** Returns the number of registered {@link Timer}. */
+    public int size() {
+        return mEntries.size();
+    }
+
+    /** Returns whether or not the registry is empty of {@link Timer}. */
+    public boolean isEmpty() {
+        return mEntries.isEmpty();
+    }
+}
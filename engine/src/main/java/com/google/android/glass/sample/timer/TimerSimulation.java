@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deterministic simulation of thousands of {@link Timer} over days of virtual time, driving their
+ * expiry through a {@link TimerExpiryTracker} and the ticks of the visible ones through a
+ * {@link TickDispatcher}, as the service does, all from a virtual {@link Clock} that jumps from one
+ * wakeup to the next.
+ * <p>
+ * Each timer is started at a random time with a random duration, and possibly paused and resumed
+ * once. Reports the expiry accuracy and the number of wakeups; the benchmarks also report its CPU
+ * cost per simulated hour:
+ * <pre>
+ *   $ ./gradlew :benchmarks:simulate [-PsimulateArgs="--timers=10000 --hours=24"]
+ * </pre>
+ */
+public class TimerSimulation {
+
+    /** Shortest and longest durations of the simulated timers, log-uniformly distributed. */
+    private static final long MIN_DURATION_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long MAX_DURATION_MILLIS = TimeUnit.HOURS.toMillis(8);
+    /** Longest pause of a paused timer. */
+    private static final long MAX_PAUSE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final int ACTION_START = 0;
+    private static final int ACTION_PAUSE = 1;
+    private static final int ACTION_RESUME = 2;
+
+    /** Scripted user action on a simulated timer. */
+    private static class Action implements Comparable<Action> {
+        final long mTimeMillis;
+        final int mTimerIndex;
+        final int mType;
+        final int mSequence;
+
+        Action(long timeMillis, int timerIndex, int type, int sequence) {
+            mTimeMillis = timeMillis;
+            mTimerIndex = timerIndex;
+            mType = type;
+            mSequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Action other) {
+            if (mTimeMillis != other.mTimeMillis) {
+                return mTimeMillis < other.mTimeMillis ? -1 : 1;
+            }
+            // Actions of a same time in script order, e.g. a timer starts before pausing.
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+    }
+
+    /** Ticks of the card of a visible {@link Timer}, on every second of its remaining time. */
+    private class VisibleTimer implements TickDispatcher.TickListener {
+        final Timer mTimer;
+
+        VisibleTimer(Timer timer) {
+            mTimer = timer;
+        }
+
+        @Override
+        public void onTick() {
+            ++mTickCount;
+            if (mTimer.getRemainingTimeMillis() % TimeUnit.SECONDS.toMillis(1) != 0) {
+                ++mOffSecondTickCount;
+            }
+        }
+
+        @Override
+        public long getNextTickDelayMillis() {
+            return mTimer.getMillisToNextSecond();
+        }
+    }
+
+    /** {@link Clock} whose time only changes when the simulation advances it. */
+    private static class VirtualClock implements Clock {
+        private long mNowMillis;
+
+        @Override
+        public long nanoTime() {
+            return TimeUnit.MILLISECONDS.toNanos(mNowMillis);
+        }
+    }
+
+    private int mTimerCount = 10000;
+    private long mDurationMillis = TimeUnit.HOURS.toMillis(24);
+    /** Number of most recently started timers whose card is visible, hence ticking. */
+    private int mVisibleCount = 1;
+    private double mPauseProbability = 0.3;
+    /** Maximum delay between a requested wakeup and the time the device actually wakes up. */
+    private long mWakeupLatencyMillis;
+    private long mSeed = 42;
+
+    private final VirtualClock mClock = new VirtualClock();
+    private final PriorityQueue<Action> mActions = new PriorityQueue<Action>();
+    private final ArrayList<VisibleTimer> mVisibleTimers = new ArrayList<VisibleTimer>();
+    private final TickDispatcher mTickDispatcher = new TickDispatcher() {
+
+        @Override
+        protected void postAtTime(Runnable runnable, long timeMillis) {
+            mTickRunnable = runnable;
+            mTickWakeupMillis = timeMillis;
+        }
+
+        @Override
+        protected void removeCallbacks(Runnable runnable) {
+            mTickRunnable = null;
+            mTickWakeupMillis = Long.MAX_VALUE;
+        }
+
+        @Override
+        protected long nowMillis() {
+            return mClock.mNowMillis;
+        }
+    };
+    private TimerExpiryTracker mTracker;
+    private Timer[] mTimers;
+    private Random mRandom;
+
+    /** Time at which the tracker asked to be advanced, delayed by the wakeup latency. */
+    private long mExpiryWakeupMillis = Long.MAX_VALUE;
+    /** Callback posted by the {@link TickDispatcher}, and the time at which it is posted. */
+    private Runnable mTickRunnable;
+    private long mTickWakeupMillis = Long.MAX_VALUE;
+
+    private final LatencyHistogram mExpiryLateness = new LatencyHistogram("expiry_lateness");
+    private int mExpiredCount;
+    private int mEarlyExpiryCount;
+    private int mExpiryWakeupCount;
+    private int mTickWakeupCount;
+    private int mSharedWakeupCount;
+    private int mDeadlineChangeCount;
+    private long mTickCount;
+    /** Ticks which did not happen on a whole second of the remaining time. */
+    private long mOffSecondTickCount;
+
+    /** Runs the whole simulation, once. */
+    public void run() {
+        setUp();
+        simulate();
+    }
+
+    /** Prints the report of the simulation. */
+    public void dump(PrintWriter writer) {
+        writer.println("timers: " + mTimerCount + " over " + getSimulatedHours() + "h, "
+                + mVisibleCount + " visible, seed " + mSeed + ", wakeup latency <= "
+                + mWakeupLatencyMillis + "ms");
+        writer.println("expired: " + mExpiredCount + ", early: " + mEarlyExpiryCount);
+        mExpiryLateness.dump(writer, "");
+        writer.println("wakeups: " + (mExpiryWakeupCount + mTickWakeupCount - mSharedWakeupCount)
+                + " (expiry " + mExpiryWakeupCount + ", tick " + mTickWakeupCount + ", shared "
+                + mSharedWakeupCount + "), deadline changes: " + mDeadlineChangeCount);
+        writer.println("ticks: " + mTickCount + ", off the second: " + mOffSecondTickCount);
+    }
+
+    /** Returns the simulated duration in hours. */
+    public double getSimulatedHours() {
+        return (double) mDurationMillis / TimeUnit.HOURS.toMillis(1);
+    }
+
+    /** Returns the number of expired timers. */
+    public int getExpiredCount() {
+        return mExpiredCount;
+    }
+
+    /** Returns the number of timers which expired before their deadline. */
+    public int getEarlyExpiryCount() {
+        return mEarlyExpiryCount;
+    }
+
+    /** Returns the number of ticks of the visible timers. */
+    public long getTickCount() {
+        return mTickCount;
+    }
+
+    /** Returns the number of ticks which did not happen on a whole second of the remaining time. */
+    public long getOffSecondTickCount() {
+        return mOffSecondTickCount;
+    }
+
+    /**
+     * Sets an option from a {@code --name=value} argument: {@code --timers}, {@code --hours},
+     * {@code --visible}, {@code --pause-probability}, {@code --wakeup-latency-ms} or
+     * {@code --seed}.
+     */
+    public void parseArgument(String arg) {
+        String value = arg.substring(arg.indexOf('=') + 1);
+
+        if (arg.startsWith("--timers=")) {
+            mTimerCount = Integer.parseInt(value);
+        } else if (arg.startsWith("--hours=")) {
+            mDurationMillis = TimeUnit.HOURS.toMillis(Long.parseLong(value));
+        } else if (arg.startsWith("--visible=")) {
+            mVisibleCount = Integer.parseInt(value);
+        } else if (arg.startsWith("--pause-probability=")) {
+            mPauseProbability = Double.parseDouble(value);
+        } else if (arg.startsWith("--wakeup-latency-ms=")) {
+            mWakeupLatencyMillis = Long.parseLong(value);
+        } else if (arg.startsWith("--seed=")) {
+            mSeed = Long.parseLong(value);
+        } else {
+            throw new IllegalArgumentException("Unknown argument: " + arg);
+        }
+    }
+
+    /** Creates the timers and scripts their actions. */
+    private void setUp() {
+        mRandom = new Random(mSeed);
+        mTracker = new TimerExpiryTracker(mClock, new TimerExpiryTracker.Callback() {
+
+            @Override
+            public void onNextDeadlineChanged(long deadlineMillis) {
+                ++mDeadlineChangeCount;
+                mExpiryWakeupMillis = deadlineMillis == Long.MAX_VALUE
+                        ? Long.MAX_VALUE : deadlineMillis + nextWakeupLatencyMillis();
+            }
+
+            @Override
+            public void onExpired(Timer timer) {
+                onTimerExpired(timer);
+            }
+        });
+        mTimers = new Timer[mTimerCount];
+        double durationRange = Math.log((double) MAX_DURATION_MILLIS / MIN_DURATION_MILLIS);
+
+        for (int i = 0; i < mTimerCount; ++i) {
+            long durationMillis =
+                    (long) (MIN_DURATION_MILLIS * Math.exp(mRandom.nextDouble() * durationRange));
+            long startMillis = (long) (mRandom.nextDouble() * mDurationMillis);
+
+            mTimers[i] = new Timer(mClock, durationMillis);
+            mActions.add(new Action(startMillis, i, ACTION_START, mActions.size()));
+            if (mRandom.nextDouble() < mPauseProbability) {
+                long pauseMillis = startMillis + (long) (mRandom.nextDouble() * durationMillis);
+                long resumeMillis = pauseMillis + (long) (mRandom.nextDouble() * MAX_PAUSE_MILLIS);
+
+                mActions.add(new Action(pauseMillis, i, ACTION_PAUSE, mActions.size()));
+                mActions.add(new Action(resumeMillis, i, ACTION_RESUME, mActions.size()));
+            }
+        }
+    }
+
+    /** Jumps from one wakeup or user action to the next until the end of the simulation. */
+    private void simulate() {
+        while (true) {
+            long nextActionMillis =
+                    mActions.isEmpty() ? Long.MAX_VALUE : mActions.peek().mTimeMillis;
+            long nextTickMillis = mTickWakeupMillis;
+            long nowMillis =
+                    Math.min(nextActionMillis, Math.min(mExpiryWakeupMillis, nextTickMillis));
+
+            if (nowMillis > mDurationMillis) {
+                break;
+            }
+            mClock.mNowMillis = nowMillis;
+            boolean expiryWakeup = nowMillis >= mExpiryWakeupMillis;
+            boolean tickWakeup = nowMillis >= nextTickMillis;
+
+            while (!mActions.isEmpty() && mActions.peek().mTimeMillis <= nowMillis) {
+                runAction(mActions.poll());
+            }
+            if (expiryWakeup) {
+                ++mExpiryWakeupCount;
+                mTracker.advance();
+            }
+            if (tickWakeup && mTickRunnable != null) {
+                Runnable tickRunnable = mTickRunnable;
+
+                ++mTickWakeupCount;
+                mTickRunnable = null;
+                mTickWakeupMillis = Long.MAX_VALUE;
+                tickRunnable.run();
+            }
+            if (expiryWakeup && tickWakeup) {
+                ++mSharedWakeupCount;
+            }
+        }
+    }
+
+    private void runAction(Action action) {
+        Timer timer = mTimers[action.mTimerIndex];
+
+        switch (action.mType) {
+            case ACTION_START:
+                mTracker.track(timer);
+                timer.start();
+                show(timer);
+                break;
+            case ACTION_PAUSE:
+                if (timer.isRunning()) {
+                    timer.pause();
+                    updateTicks(timer);
+                }
+                break;
+            case ACTION_RESUME:
+                if (timer.isStarted() && !timer.isRunning()) {
+                    timer.start();
+                    updateTicks(timer);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown action " + action.mType);
+        }
+    }
+
+    private void onTimerExpired(Timer timer) {
+        long latenessNanos = mClock.nanoTime() - timer.getDeadlineNanos();
+        int visibleIndex = indexOfVisible(timer);
+
+        ++mExpiredCount;
+        if (latenessNanos < 0) {
+            ++mEarlyExpiryCount;
+        }
+        mExpiryLateness.record(latenessNanos);
+        // Dismissed as soon as it expires.
+        mTracker.untrack(timer);
+        timer.reset();
+        if (visibleIndex >= 0) {
+            mTickDispatcher.unsubscribe(mVisibleTimers.remove(visibleIndex));
+        }
+    }
+
+    /** Brings the card of a started timer into view, hiding the oldest visible one. */
+    private void show(Timer timer) {
+        if (mVisibleCount == 0) {
+            return;
+        }
+        if (mVisibleTimers.size() == mVisibleCount) {
+            mTickDispatcher.unsubscribe(mVisibleTimers.remove(0));
+        }
+        VisibleTimer visibleTimer = new VisibleTimer(timer);
+
+        mVisibleTimers.add(visibleTimer);
+        mTickDispatcher.subscribe(visibleTimer);
+    }
+
+    /** Stops or resumes the ticks of a visible timer when it is paused or resumed, as its view. */
+    private void updateTicks(Timer timer) {
+        int index = indexOfVisible(timer);
+
+        if (index >= 0) {
+            VisibleTimer visibleTimer = mVisibleTimers.get(index);
+
+            mTickDispatcher.unsubscribe(visibleTimer);
+            if (timer.isRunning()) {
+                mTickDispatcher.subscribe(visibleTimer);
+            }
+        }
+    }
+
+    private int indexOfVisible(Timer timer) {
+        for (int i = 0; i < mVisibleTimers.size(); ++i) {
+            if (mVisibleTimers.get(i).mTimer == timer) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private long nextWakeupLatencyMillis() {
+        return mWakeupLatencyMillis == 0 ? 0 : (long) (mRandom.nextDouble() * mWakeupLatencyMillis);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+/**
+ * Immutable snapshot of a {@link Timer}, whose fields are all read from a same state so that they
+ * never disagree, e.g. a timer seen running but not started.
+ */
+public final class TimerSnapshot {
+
+    private final long mId;
+    private final long mDurationMillis;
+    private final long mRemainingTimeMillis;
+    private final boolean mStarted;
+    private final boolean mRunning;
+
+    TimerSnapshot(long id, long durationMillis, long remainingTimeMillis, boolean started,
+            boolean running) {
+        mId = id;
+        mDurationMillis = durationMillis;
+        mRemainingTimeMillis = remainingTimeMillis;
+        mStarted = started;
+        mRunning = running;
+    }
+
+    /** Returns the {@link Timer#getId()} of the timer. */
+    public long getId() {
+        return mId;
+    }
+
+    /** Returns the duration in milliseconds of the timer. */
+    public long getDurationMillis() {
+        return mDurationMillis;
+    }
+
+    /** Returns the remaining time in milliseconds of the timer when the snapshot was taken. */
+    public long getRemainingTimeMillis() {
+        return mRemainingTimeMillis;
+    }
+
+    /** Returns whether or not the timer had been started. */
+    public boolean isStarted() {
+        return mStarted;
+    }
+
+    /** Returns whether or not the timer was running. */
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /** Returns whether or not the timer was paused, i.e. started but not running. */
+    public boolean isPaused() {
+        return mStarted && !mRunning;
+    }
+}
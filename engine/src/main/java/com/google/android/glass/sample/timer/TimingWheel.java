@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+/**
+ * Hierarchical timing wheel with constant time schedule and cancel, expiring its entries in
+ * deadline order.
+ * <p>
+ * Each level has {@link #SLOTS} slots and covers {@link #SLOTS} times the span of the level below.
+ * An entry is stored in the level of the highest group of bits, among {@link #SLOT_BITS} bits
+ * groups, in which its deadline differs from the current tick, and cascades to lower levels as the
+ * wheel advances. A bitmask of the occupied slots per level lets the wheel skip empty slots, so
+ * that advancing over a long period is not proportional to its number of ticks.
+ */
+public class TimingWheel<V> {
+
+    /**
+     * Interface to handle the expired entries.
+     */
+    public interface ExpiryHandler<V> {
+        /** The deadline of the {@code value} has passed. */
+        public void onExpired(V value);
+    }
+
+    /**
+     * Scheduled value, used to cancel it.
+     */
+    public static final class Entry<V> {
+        private final V mValue;
+        private final long mDeadlineTick;
+        /** Index of the slot holding the entry, {@link #DUE} or {@link #NOT_SCHEDULED}. */
+        private int mSlotIndex;
+        private Entry<V> mPrevious;
+        private Entry<V> mNext;
+
+        private Entry(V value, long deadlineTick) {
+            mValue = value;
+            mDeadlineTick = deadlineTick;
+        }
+
+        /** Returns the scheduled value. */
+        public V getValue() {
+            return mValue;
+        }
+
+        /** Returns whether or not the entry is still waiting for its deadline. */
+        public boolean isScheduled() {
+            return mSlotIndex != NOT_SCHEDULED;
+        }
+    }
+
+    // Visible for testing.
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    /** Enough levels to cover every tick of a {@code long}. */
+    static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+
+    private static final int SLOT_MASK = SLOTS - 1;
+    /** Slot index of the entries whose deadline had already passed when they were scheduled. */
+    private static final int DUE = -1;
+    private static final int NOT_SCHEDULED = -2;
+
+    private final long mTickMillis;
+    /** Time of the tick 0, so that ticks are never negative. */
+    private final long mOriginMillis;
+
+    /** Heads of the doubly linked lists of entries, {@link #SLOTS} per level. */
+    private final Entry<V>[] mSlots;
+    /** Bitmask of the occupied slots of each level. */
+    private final long[] mOccupiedSlots = new long[LEVELS];
+    private Entry<V> mDue;
+
+    private long mCurrentTick;
+    private int mSize;
+
+    /**
+     * Creates a wheel advancing by steps of {@code tickMillis}, whose current time is
+     * {@code nowMillis}.
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        mTickMillis = tickMillis;
+        mOriginMillis = nowMillis;
+        mSlots = (Entry<V>[]) new Entry<?>[LEVELS * SLOTS];
+    }
+
+    /**
+     * Schedules {@code value} to expire at {@code deadlineMillis}, rounded up to the next tick.
+     * A deadline that already passed expires on the next call to {@link #advanceTo}.
+     */
+    public Entry<V> schedule(V value, long deadlineMillis) {
+        long deadlineTick = deadlineMillis <= mOriginMillis
+                ? 0 : (deadlineMillis - mOriginMillis + mTickMillis - 1) / mTickMillis;
+        Entry<V> entry = new Entry<V>(value, deadlineTick);
+
+        if (deadlineTick <= mCurrentTick) {
+            entry.mSlotIndex = DUE;
+            mDue = push(mDue, entry);
+        } else {
+            place(entry);
+        }
+        ++mSize;
+        return entry;
+    }
+
+    /** Cancels a scheduled entry and returns whether or not it was still scheduled. */
+    public boolean cancel(Entry<V> entry) {
+        if (!entry.isScheduled()) {
+            return false;
+        }
+        unlink(entry);
+        --mSize;
+        return true;
+    }
+
+    /**
+     * Advances the wheel to {@code nowMillis}, notifying {@code handler} of the expired entries in
+     * deadline order, and returns their count. Entries scheduled after their deadline expire first.
+     * The handler can schedule and cancel entries.
+     */
+    public int advanceTo(long nowMillis, ExpiryHandler<V> handler) {
+        long nowTick = nowMillis <= mOriginMillis ? 0 : (nowMillis - mOriginMillis) / mTickMillis;
+        int expiredCount = 0;
+
+        while (mDue != null) {
+            expire(mDue, handler);
+            ++expiredCount;
+        }
+        while (true) {
+            long nextTick = getNextTick();
+
+            if (nextTick > nowTick) {
+                break;
+            }
+            mCurrentTick = nextTick;
+            // Cascade the entries of the slots starting at this tick, from the highest level.
+            for (int level = LEVELS - 1; level > 0; --level) {
+                if ((mCurrentTick & ((1L << (level * SLOT_BITS)) - 1)) == 0) {
+                    cascade(level);
+                }
+            }
+            int slotIndex = (int) (mCurrentTick & SLOT_MASK);
+
+            while (mSlots[slotIndex] != null) {
+                expire(mSlots[slotIndex], handler);
+                ++expiredCount;
+            }
+        }
+        if (nowTick > mCurrentTick) {
+            mCurrentTick = nowTick;
+        }
+        return expiredCount;
+    }
+
+    /**
+     * Returns the time, no later than the earliest deadline, at which the wheel must next be
+     * advanced, or {@link Long#MAX_VALUE} if it is empty.
+     */
+    public long getNextDeadlineMillis() {
+        if (mDue != null) {
+            return mOriginMillis + mCurrentTick * mTickMillis;
+        }
+        long nextTick = getNextTick();
+
+        return nextTick == Long.MAX_VALUE ? Long.MAX_VALUE : mOriginMillis + nextTick * mTickMillis;
+    }
+
+    /** Returns the number of scheduled entries. */
+    public int size() {
+        return mSize;
+    }
+
+    /** Returns whether or not no entry is scheduled. */
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /** Returns the next tick with a slot to cascade or expire, or {@link Long#MAX_VALUE}. */
+    private long getNextTick() {
+        long nextTick = Long.MAX_VALUE;
+
+        for (int level = 0; level < LEVELS; ++level) {
+            int shift = level * SLOT_BITS;
+            int currentSlot = (int) ((mCurrentTick >>> shift) & SLOT_MASK);
+            long laterSlots = currentSlot == SLOT_MASK
+                    ? 0 : mOccupiedSlots[level] & (-1L << (currentSlot + 1));
+
+            if (laterSlots != 0) {
+                long slot = Long.numberOfTrailingZeros(laterSlots);
+                int levelShift = shift + SLOT_BITS;
+                long tick = levelShift >= Long.SIZE
+                        ? 0 : (mCurrentTick >>> levelShift) << levelShift;
+
+                tick |= slot << shift;
+
+                if (tick < nextTick) {
+                    nextTick = tick;
+                }
+            }
+        }
+        return nextTick;
+    }
+
+    /** Stores the entry in the slot of the highest bits group differing from the current tick. */
+    private void place(Entry<V> entry) {
+        long differingBits = entry.mDeadlineTick ^ mCurrentTick;
+        int level = differingBits == 0
+                ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(differingBits)) / SLOT_BITS;
+        int slot = (int) ((entry.mDeadlineTick >>> (level * SLOT_BITS)) & SLOT_MASK);
+        int slotIndex = level * SLOTS + slot;
+
+        entry.mSlotIndex = slotIndex;
+        mSlots[slotIndex] = push(mSlots[slotIndex], entry);
+        mOccupiedSlots[level] |= 1L << slot;
+    }
+
+    /** Moves the entries of the current slot of {@code level} to the lower levels. */
+    private void cascade(int level) {
+        int slot = (int) ((mCurrentTick >>> (level * SLOT_BITS)) & SLOT_MASK);
+        int slotIndex = level * SLOTS + slot;
+        Entry<V> entry = mSlots[slotIndex];
+
+        mSlots[slotIndex] = null;
+        mOccupiedSlots[level] &= ~(1L << slot);
+        while (entry != null) {
+            Entry<V> next = entry.mNext;
+
+            entry.mPrevious = null;
+            entry.mNext = null;
+            place(entry);
+            entry = next;
+        }
+    }
+
+    /** Removes {@code entry} and notifies {@code handler} of its expiry. */
+    private void expire(Entry<V> entry, ExpiryHandler<V> handler) {
+        unlink(entry);
+        --mSize;
+        handler.onExpired(entry.mValue);
+    }
+
+    private static <V> Entry<V> push(Entry<V> head, Entry<V> entry) {
+        entry.mNext = head;
+        if (head != null) {
+            head.mPrevious = entry;
+        }
+        return entry;
+    }
+
+    private void unlink(Entry<V> entry) {
+        if (entry.mPrevious != null) {
+            entry.mPrevious.mNext = entry.mNext;
+        } else if (entry.mSlotIndex == DUE) {
+            mDue = entry.mNext;
+        } else {
+            mSlots[entry.mSlotIndex] = entry.mNext;
+            if (entry.mNext == null) {
+                mOccupiedSlots[entry.mSlotIndex / SLOTS] &= ~(1L << (entry.mSlotIndex % SLOTS));
+            }
+        }
+        if (entry.mNext != null) {
+            entry.mNext.mPrevious = entry.mPrevious;
+        }
+        entry.mPrevious = null;
+        entry.mNext = null;
+        entry.mSlotIndex = NOT_SCHEDULED;
+    }
+}
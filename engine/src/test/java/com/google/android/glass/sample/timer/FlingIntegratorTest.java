@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link FlingIntegrator}.
+ */
+public class FlingIntegratorTest extends TestCase {
+
+    private static final float DELTA = 1e-3f;
+    private static final float MINUTE = 60;
+    private static final float MAX_POSITION = 100 * MINUTE;
+    private static final long START_NANOS = TimeUnit.SECONDS.toNanos(42);
+
+    private FlingIntegrator mIntegrator;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mIntegrator = new FlingIntegrator(MINUTE);
+    }
+
+    public void testStartBelowCutoff() {
+        assertFalse(mIntegrator.start(0, FlingPhysics.FLING_VELOCITY_CUTOFF, 0, MAX_POSITION,
+                START_NANOS));
+        assertFalse(mIntegrator.isRunning());
+    }
+
+    public void testSettlesOnNextMinute() {
+        // Travels 1000 seconds, extended to 17 minutes.
+        assertTrue(mIntegrator.start(0, 20, 0, MAX_POSITION, START_NANOS));
+        assertTrue(mIntegrator.isRunning());
+        assertEquals(17 * MINUTE, mIntegrator.getFinalPosition(), DELTA);
+        assertEquals(0f, mIntegrator.advanceTo(START_NANOS), DELTA);
+        assertTrue(mIntegrator.isRunning());
+        // Decelerating from the release velocity over 1020 seconds takes 1224ms.
+        assertEquals(17 * MINUTE,
+                mIntegrator.advanceTo(START_NANOS + TimeUnit.MILLISECONDS.toNanos(1224)), 0);
+        assertFalse(mIntegrator.isRunning());
+    }
+
+    public void testSettlesOnPreviousMinuteBackward() {
+        assertTrue(mIntegrator.start(30 * MINUTE, -20, 0, MAX_POSITION, START_NANOS));
+        assertEquals(13 * MINUTE, mIntegrator.getFinalPosition(), DELTA);
+    }
+
+    public void testConfined() {
+        assertTrue(mIntegrator.start(MAX_POSITION - MINUTE, 20, 0, MAX_POSITION, START_NANOS));
+        assertEquals(MAX_POSITION, mIntegrator.getFinalPosition(), 0);
+        assertTrue(mIntegrator.start(MINUTE, -20, 0, MAX_POSITION, START_NANOS));
+        assertEquals(0f, mIntegrator.getFinalPosition(), 0);
+    }
+
+    public void testDecelerates() {
+        long frameNanos = TimeUnit.MILLISECONDS.toNanos(16);
+        float previousPosition = 0;
+        float previousStep = Float.MAX_VALUE;
+        int frames = 0;
+
+        mIntegrator.start(0, 20, 0, MAX_POSITION, START_NANOS);
+        while (mIntegrator.isRunning()) {
+            float position = mIntegrator.advanceTo(START_NANOS + ++frames * frameNanos);
+            float step = position - previousPosition;
+
+            assertTrue(step >= 0);
+            assertTrue(step <= previousStep + DELTA);
+            previousPosition = position;
+            previousStep = step;
+        }
+        assertEquals((1224 + 15) / 16, frames);
+        assertEquals(17 * MINUTE, previousPosition, 0);
+    }
+
+    public void testHalfway() {
+        mIntegrator.start(0, 20, 0, MAX_POSITION, START_NANOS);
+        // Three quarters of the distance are covered in the first half of the duration.
+        assertEquals(0.75f * 17 * MINUTE,
+                mIntegrator.advanceTo(START_NANOS + TimeUnit.MILLISECONDS.toNanos(612)), DELTA);
+    }
+
+    public void testStartsAtReleaseVelocity() {
+        assertInitialVelocity(0, 20);
+        // Short fling snapped up from 10 seconds to a whole minute.
+        assertInitialVelocity(0, 2);
+        assertInitialVelocity(30 * MINUTE, -20);
+    }
+
+    public void testClampedFlingIsShort() {
+        mIntegrator.start(MAX_POSITION - 1, 20, 0, MAX_POSITION, START_NANOS);
+        assertEquals(MAX_POSITION,
+                mIntegrator.advanceTo(START_NANOS + TimeUnit.MILLISECONDS.toNanos(2)), 0);
+        assertFalse(mIntegrator.isRunning());
+    }
+
+    public void testFinishAndCancel() {
+        mIntegrator.start(0, 20, 0, MAX_POSITION, START_NANOS);
+        assertEquals(17 * MINUTE, mIntegrator.finish(), 0);
+        assertFalse(mIntegrator.isRunning());
+        mIntegrator.start(0, 20, 0, MAX_POSITION, START_NANOS);
+        mIntegrator.cancel();
+        assertFalse(mIntegrator.isRunning());
+    }
+
+    /**
+     * Asserts that the fling starts at {@code velocity}, in seconds per
+     * {@link FlingPhysics#TIME_LENGTHENING} milliseconds.
+     */
+    private void assertInitialVelocity(float position, float velocity) {
+        long stepNanos = TimeUnit.MICROSECONDS.toNanos(100);
+        float expectedPerMillis = velocity / FlingPhysics.TIME_LENGTHENING;
+
+        assertTrue(mIntegrator.start(position, velocity, 0, MAX_POSITION, START_NANOS));
+        float step = mIntegrator.advanceTo(START_NANOS + stepNanos) - position;
+        assertEquals(expectedPerMillis, step / 0.1f, Math.abs(expectedPerMillis) * 0.01f);
+    }
+
+    public void testInvalidSnapInterval() {
+        try {
+            new FlingIntegrator(0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link FlingPhysics}.
+ */
+public class FlingPhysicsTest extends TestCase {
+
+    private static final float DELTA = 1e-3f;
+
+    public void testShouldFling() {
+        assertFalse(FlingPhysics.shouldFling(0));
+        assertFalse(FlingPhysics.shouldFling(FlingPhysics.FLING_VELOCITY_CUTOFF));
+        assertTrue(FlingPhysics.shouldFling(2));
+        assertTrue(FlingPhysics.shouldFling(-2));
+    }
+
+    public void testGetDistance() {
+        assertEquals(1000f, FlingPhysics.getDistance(20), DELTA);
+        assertEquals(-1000f, FlingPhysics.getDistance(-20), DELTA);
+    }
+
+    public void testGetDurationMillis() {
+        assertEquals(1200, FlingPhysics.getDurationMillis(20));
+        assertEquals(1200, FlingPhysics.getDurationMillis(-20));
+    }
+
+    public void testGetDurationMillisOverDistance() {
+        assertEquals(1200f, FlingPhysics.getDurationMillis(20, 1000), DELTA);
+        assertEquals(1224f, FlingPhysics.getDurationMillis(20, 1020), DELTA);
+        assertEquals(1224f, FlingPhysics.getDurationMillis(-20, -1020), DELTA);
+        assertEquals(0f, FlingPhysics.getDurationMillis(20, 0), DELTA);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import junit.framework.TestCase;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest extends TestCase {
+
+    private LatencyHistogram mHistogram;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mHistogram = new LatencyHistogram("test");
+    }
+
+    public void testBuckets() {
+        assertEquals(0, LatencyHistogram.getBucket(0));
+        assertEquals(0, LatencyHistogram.getBucket(999));
+        assertEquals(1, LatencyHistogram.getBucket(TimeUnit.MICROSECONDS.toNanos(1)));
+        assertEquals(2, LatencyHistogram.getBucket(TimeUnit.MICROSECONDS.toNanos(2)));
+        assertEquals(2, LatencyHistogram.getBucket(TimeUnit.MICROSECONDS.toNanos(3)));
+        assertEquals(10, LatencyHistogram.getBucket(TimeUnit.MILLISECONDS.toNanos(1)));
+        assertEquals(11, LatencyHistogram.getBucket(TimeUnit.MICROSECONDS.toNanos(1024)));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.getBucket(Long.MAX_VALUE));
+    }
+
+    public void testRecord() {
+        mHistogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+        mHistogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+        mHistogram.record(-1);
+
+        assertEquals(3, mHistogram.getCount());
+        assertEquals(2, mHistogram.getBucketCount(2));
+        assertEquals(1, mHistogram.getBucketCount(0));
+    }
+
+    public void testPercentiles() {
+        for (int i = 0; i < 99; ++i) {
+            mHistogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        mHistogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(128), mHistogram.getPercentileNanos(50));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(128), mHistogram.getPercentileNanos(99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), mHistogram.getPercentileNanos(100));
+    }
+
+    public void testEmpty() {
+        assertEquals(0, mHistogram.getPercentileNanos(50));
+        assertEquals("test: count=0\n", dump());
+    }
+
+    public void testReset() {
+        mHistogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        mHistogram.reset();
+
+        assertEquals(0, mHistogram.getCount());
+        assertEquals(0, mHistogram.getPercentileNanos(100));
+    }
+
+    public void testDump() {
+        mHistogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+        mHistogram.record(TimeUnit.MICROSECONDS.toNanos(5));
+
+        assertEquals("test: count=2 mean=4us p50<=4us p90<=5us p99<=5us max=5us\n"
+                + "  <4us: 1\n"
+                + "  <8us: 1\n", dump());
+    }
+
+    private String dump() {
+        StringWriter out = new StringWriter();
+        PrintWriter writer = new PrintWriter(out);
+
+        mHistogram.dump(writer, "");
+        writer.flush();
+        return out.toString();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Unit tests for {@link MotionTrace}.
+ */
+public class MotionTraceTest extends TestCase {
+
+    private static final long ORIGIN_MILLIS = 123456;
+    private static final int SOURCE = 0x100008;
+
+    private final int[] mPointerIds = { 0, 1 };
+    private final float[] mXs = { 10.5f, 700 };
+    private final float[] mYs = { 20, 30.25f };
+
+    private MotionTrace mTrace;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mTrace = new MotionTrace();
+    }
+
+    public void testAdd() {
+        addSwipe(mTrace, 3);
+
+        assertEquals(5, mTrace.size());
+        assertEquals(0, mTrace.getEventTimeMillis(0));
+        assertEquals(40, mTrace.getEventTimeMillis(4));
+        assertEquals(40, mTrace.getDurationMillis());
+        assertEquals(0, mTrace.getDownTimeMillis(4));
+        assertEquals(1, mTrace.getPointerCount(0));
+        assertEquals(2, mTrace.getPointerCount(2));
+        assertEquals(1, mTrace.getPointerId(2, 1));
+        assertEquals(700f, mTrace.getX(2, 1));
+        assertEquals(30.25f, mTrace.getY(2, 1));
+        assertEquals(SOURCE, mTrace.getSource(1));
+        assertEquals(2, mTrace.getAction(1));
+    }
+
+    public void testGrows() {
+        addSwipe(mTrace, 1000);
+
+        assertEquals(1002, mTrace.size());
+        assertEquals(10010, mTrace.getDurationMillis());
+        assertEquals(10.5f + 999, mTrace.getX(1000, 0));
+    }
+
+    public void testWriteAndRead() throws IOException {
+        addSwipe(mTrace, 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        mTrace.writeTo(out);
+        // Header, 5 events, 7 pointers.
+        assertEquals(9 + 5 * 15 + 7 * 9, out.size());
+
+        MotionTrace trace = MotionTrace.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(mTrace.size(), trace.size());
+        for (int i = 0; i < trace.size(); ++i) {
+            assertEquals(mTrace.getEventTimeMillis(i), trace.getEventTimeMillis(i));
+            assertEquals(mTrace.getDownTimeMillis(i), trace.getDownTimeMillis(i));
+            assertEquals(mTrace.getAction(i), trace.getAction(i));
+            assertEquals(mTrace.getSource(i), trace.getSource(i));
+            assertEquals(mTrace.getPointerCount(i), trace.getPointerCount(i));
+            for (int j = 0; j < trace.getPointerCount(i); ++j) {
+                assertEquals(mTrace.getPointerId(i, j), trace.getPointerId(i, j));
+                assertEquals(mTrace.getX(i, j), trace.getX(i, j));
+                assertEquals(mTrace.getY(i, j), trace.getY(i, j));
+            }
+        }
+    }
+
+    public void testReadNotATrace() {
+        try {
+            MotionTrace.readFrom(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5 }));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Expected.
+        }
+    }
+
+    public void testClear() {
+        addSwipe(mTrace, 3);
+        mTrace.clear();
+        assertEquals(0, mTrace.size());
+        mTrace.add(ORIGIN_MILLIS + 500, ORIGIN_MILLIS + 500, 0, SOURCE, 1, mPointerIds, mXs, mYs);
+        assertEquals(0, mTrace.getEventTimeMillis(0));
+    }
+
+    /** Adds a down, {@code moves} moves with two fingers every 10ms and an up. */
+    private void addSwipe(MotionTrace trace, int moves) {
+        float[] xs = mXs.clone();
+
+        trace.add(ORIGIN_MILLIS, ORIGIN_MILLIS, 0, SOURCE, 1, mPointerIds, xs, mYs);
+        for (int i = 0; i < moves; ++i) {
+            trace.add(ORIGIN_MILLIS + (i + 1) * 10, ORIGIN_MILLIS, 2, SOURCE, i == 0 ? 1 : 2,
+                    mPointerIds, xs, mYs);
+            ++xs[0];
+        }
+        trace.add(ORIGIN_MILLIS + (moves + 1) * 10, ORIGIN_MILLIS, 1, SOURCE, 1, mPointerIds, xs,
+                mYs);
+    }
+}
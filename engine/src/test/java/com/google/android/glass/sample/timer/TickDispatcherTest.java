@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Unit tests for {@link TickDispatcher}.
+ */
+public class TickDispatcherTest extends TestCase {
+
+    private static final long PERIOD_MILLIS = 1000;
+
+    private long mNowMillis;
+    private Runnable mPostedRunnable;
+    private long mPostedMillis;
+    private int mPostCount;
+
+    private final TickDispatcher mDispatcher = new TickDispatcher() {
+
+        @Override
+        protected void postAtTime(Runnable runnable, long timeMillis) {
+            ++mPostCount;
+            mPostedRunnable = runnable;
+            mPostedMillis = timeMillis;
+        }
+
+        @Override
+        protected void removeCallbacks(Runnable runnable) {
+            mPostedRunnable = null;
+        }
+
+        @Override
+        protected long nowMillis() {
+            return mNowMillis;
+        }
+    };
+
+    /** {@link TickDispatcher.TickListener} ticking every second from its own offset. */
+    private class PeriodicListener implements TickDispatcher.TickListener {
+        private final long mOffsetMillis;
+        private int mTickCount;
+
+        PeriodicListener(long offsetMillis) {
+            mOffsetMillis = offsetMillis;
+        }
+
+        @Override
+        public void onTick() {
+            assertEquals(mOffsetMillis, mNowMillis % PERIOD_MILLIS);
+            ++mTickCount;
+        }
+
+        @Override
+        public long getNextTickDelayMillis() {
+            // A whole period when called on the tick itself.
+            return (mOffsetMillis - mNowMillis % PERIOD_MILLIS + PERIOD_MILLIS - 1) % PERIOD_MILLIS
+                    + 1;
+        }
+    }
+
+    public void testManyListenersTickInOrderOncePerPeriod() {
+        PeriodicListener[] listeners = new PeriodicListener[1000];
+        Random random = new Random(3);
+
+        mNowMillis = PERIOD_MILLIS;
+        for (int i = 0; i < listeners.length; ++i) {
+            listeners[i] = new PeriodicListener(1 + random.nextInt((int) PERIOD_MILLIS - 1));
+            mDispatcher.subscribe(listeners[i]);
+        }
+        long endMillis = mNowMillis + 10 * PERIOD_MILLIS;
+        while (mPostedRunnable != null && mPostedMillis < endMillis) {
+            assertTrue(mPostedMillis > mNowMillis);
+            mNowMillis = mPostedMillis;
+            runPosted();
+        }
+
+        for (PeriodicListener listener : listeners) {
+            assertEquals(10, listener.mTickCount);
+        }
+        // No more wakeups than distinct offsets.
+        assertTrue(mPostCount <= 10 * PERIOD_MILLIS + 1);
+    }
+
+    public void testUnsubscribeOtherWhileDispatching() {
+        final PeriodicListener other = new PeriodicListener(0);
+        TickDispatcher.TickListener unsubscriber = new PeriodicListener(0) {
+
+            @Override
+            public void onTick() {
+                mDispatcher.unsubscribe(other);
+            }
+        };
+
+        mNowMillis = PERIOD_MILLIS + 1;
+        mDispatcher.subscribe(unsubscriber);
+        mDispatcher.subscribe(other);
+        mNowMillis = mPostedMillis;
+        runPosted();
+
+        // Notified first or not at all, never after being unsubscribed.
+        assertTrue(other.mTickCount <= 1);
+        assertFalse(mDispatcher.isSubscribed(other));
+        assertTrue(mDispatcher.isSubscribed(unsubscriber));
+        assertEquals(3 * PERIOD_MILLIS, mPostedMillis);
+    }
+
+    public void testResubscribeWhileDispatchingTicksOnce() {
+        TickDispatcher.TickListener resubscriber = new PeriodicListener(0) {
+
+            @Override
+            public void onTick() {
+                super.onTick();
+                mDispatcher.unsubscribe(this);
+                mDispatcher.subscribe(this);
+            }
+        };
+
+        mNowMillis = PERIOD_MILLIS + 1;
+        mDispatcher.subscribe(resubscriber);
+        mNowMillis = mPostedMillis;
+        runPosted();
+
+        assertEquals(1, ((PeriodicListener) resubscriber).mTickCount);
+        assertEquals(3 * PERIOD_MILLIS, mPostedMillis);
+    }
+
+    private void runPosted() {
+        Runnable runnable = mPostedRunnable;
+
+        mPostedRunnable = null;
+        runnable.run();
+    }
+}
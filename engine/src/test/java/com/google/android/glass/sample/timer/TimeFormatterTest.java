@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link TimeFormatter}.
+ */
+public class TimeFormatterTest extends TestCase {
+
+    private final char[] mBuffer = new char[TimeFormatter.BUFFER_SIZE];
+
+    public void testFormatTwoDigitsMatchesStringFormat() {
+        for (long value = -150; value <= 150; ++value) {
+            assertFormat(value);
+        }
+        assertFormat(12345);
+        assertFormat(Long.MAX_VALUE);
+        assertFormat(Long.MIN_VALUE);
+    }
+
+    private void assertFormat(long value) {
+        int length = TimeFormatter.formatTwoDigits(value, mBuffer);
+
+        assertEquals(String.format("%02d", value), new String(mBuffer, 0, length));
+    }
+}
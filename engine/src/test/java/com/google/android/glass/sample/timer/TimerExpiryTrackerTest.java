@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link TimerExpiryTracker}.
+ */
+public class TimerExpiryTrackerTest extends TestCase {
+
+    private static final long INITIAL_TIME_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private long mNowMillis;
+    private long mNextDeadlineMillis;
+    private final List<Timer> mExpired = new ArrayList<Timer>();
+
+    private final Clock mClock = new Clock() {
+
+        @Override
+        public long nanoTime() {
+            return TimeUnit.MILLISECONDS.toNanos(mNowMillis);
+        }
+    };
+
+    private TimerExpiryTracker mTracker;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mNowMillis = INITIAL_TIME_MILLIS;
+        mNextDeadlineMillis = Long.MAX_VALUE;
+        mExpired.clear();
+        mTracker = new TimerExpiryTracker(mClock, new TimerExpiryTracker.Callback() {
+
+            @Override
+            public void onNextDeadlineChanged(long deadlineMillis) {
+                mNextDeadlineMillis = deadlineMillis;
+            }
+
+            @Override
+            public void onExpired(Timer timer) {
+                mExpired.add(timer);
+            }
+        });
+    }
+
+    public void testRunningTimerExpires() {
+        Timer timer = newTrackedTimer(TimeUnit.SECONDS.toMillis(5));
+
+        timer.start();
+        int wakeups = advanceUntil(INITIAL_TIME_MILLIS + TimeUnit.SECONDS.toMillis(5));
+        assertEquals(1, mExpired.size());
+        assertSame(timer, mExpired.get(0));
+        assertEquals(INITIAL_TIME_MILLIS + TimeUnit.SECONDS.toMillis(5), mNowMillis);
+        assertTrue(wakeups <= TimingWheel.LEVELS);
+        assertEquals(Long.MAX_VALUE, mNextDeadlineMillis);
+    }
+
+    public void testPausedTimerDoesNotExpire() {
+        Timer timer = newTrackedTimer(TimeUnit.SECONDS.toMillis(5));
+
+        timer.start();
+        timer.pause();
+        assertEquals(Long.MAX_VALUE, mNextDeadlineMillis);
+        mNowMillis += TimeUnit.SECONDS.toMillis(10);
+        assertEquals(0, mTracker.advance());
+    }
+
+    public void testResumedTimerDeadlineShifted() {
+        Timer timer = newTrackedTimer(TimeUnit.SECONDS.toMillis(5));
+
+        timer.start();
+        mNowMillis += TimeUnit.SECONDS.toMillis(1);
+        timer.pause();
+        mNowMillis += TimeUnit.SECONDS.toMillis(10);
+        timer.start();
+        long deadlineMillis = mNowMillis + TimeUnit.SECONDS.toMillis(4);
+
+        advanceUntil(deadlineMillis - 1);
+        assertTrue(mExpired.isEmpty());
+        advanceUntil(deadlineMillis);
+        assertEquals(deadlineMillis, mNowMillis);
+        assertSame(timer, mExpired.get(0));
+    }
+
+    public void testExpiresInDeadlineOrder() {
+        Timer later = newTrackedTimer(TimeUnit.MINUTES.toMillis(10));
+        Timer sooner = newTrackedTimer(TimeUnit.MINUTES.toMillis(1));
+
+        later.start();
+        sooner.start();
+        mNowMillis += TimeUnit.HOURS.toMillis(1);
+        assertEquals(2, mTracker.advance());
+        assertSame(sooner, mExpired.get(0));
+        assertSame(later, mExpired.get(1));
+    }
+
+    public void testExpireIfDueBeforeTick() {
+        Timer timer = newTrackedTimer(TimeUnit.SECONDS.toMillis(5) + 1);
+
+        timer.start();
+        assertFalse(mTracker.expireIfDue(timer));
+        mNowMillis += TimeUnit.SECONDS.toMillis(5) + 1;
+        assertEquals(0, mTracker.advance());
+        assertTrue(mTracker.expireIfDue(timer));
+        assertSame(timer, mExpired.get(0));
+        assertEquals(Long.MAX_VALUE, mNextDeadlineMillis);
+
+        // Already expired: neither the next tick nor another alarm expire it again.
+        mNowMillis += TimerExpiryTracker.TICK_MILLIS;
+        assertEquals(0, mTracker.advance());
+        assertFalse(mTracker.expireIfDue(timer));
+        assertEquals(1, mExpired.size());
+    }
+
+    public void testUntrack() {
+        Timer timer = newTrackedTimer(TimeUnit.SECONDS.toMillis(5));
+
+        timer.start();
+        mTracker.untrack(timer);
+        assertEquals(0, mTracker.getPendingCount());
+        assertEquals(Long.MAX_VALUE, mNextDeadlineMillis);
+        timer.reset();
+        timer.start();
+        assertEquals(0, mTracker.getPendingCount());
+    }
+
+    /**
+     * Advances the tracker at each requested deadline until {@code untilMillis} and returns the
+     * number of advances.
+     */
+    private int advanceUntil(long untilMillis) {
+        int advanceCount = 0;
+
+        while (mNextDeadlineMillis <= untilMillis) {
+            assertTrue(mNextDeadlineMillis >= mNowMillis);
+            mNowMillis = mNextDeadlineMillis;
+            mTracker.advance();
+            ++advanceCount;
+        }
+        return advanceCount;
+    }
+
+    private Timer newTrackedTimer(long durationMillis) {
+        Timer timer = new Timer(mClock, durationMillis);
+
+        mTracker.track(timer);
+        return timer;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link TimerJournal}.
+ */
+public class TimerJournalTest extends TestCase {
+
+    private static final long INITIAL_TIME_NANOS = TimeUnit.HOURS.toNanos(1);
+    private static final long DURATION_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long BOOT_TIME_MILLIS = 1388534400000L;
+
+    private long mNowNanos;
+    private long mBootTimeMillis;
+    /** Whether or not the journal fails to write its files, as on a full storage. */
+    private volatile boolean mWriteFailing;
+    private final Clock mClock = new Clock() {
+
+        @Override
+        public long nanoTime() {
+            return mNowNanos;
+        }
+    };
+
+    private File mDirectory;
+    private ScheduledExecutorService mExecutor;
+    private TimerJournal mJournal;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mNowNanos = INITIAL_TIME_NANOS;
+        mBootTimeMillis = BOOT_TIME_MILLIS;
+        mWriteFailing = false;
+        mDirectory = File.createTempFile("journal", "");
+        mDirectory.delete();
+        mJournal = newJournal();
+        assertTrue(mJournal.recover(mClock, mBootTimeMillis).isEmpty());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        closeJournal();
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+        super.tearDown();
+    }
+
+    public void testRecoverRunningTimer() {
+        Timer timer = newRecordedTimer();
+
+        timer.start();
+        mNowNanos += TimeUnit.SECONDS.toNanos(30);
+
+        List<Timer> timers = recoverInNewJournal();
+        assertEquals(1, timers.size());
+        Timer recovered = timers.get(0);
+        assertTrue(recovered.isRunning());
+        assertEquals(DURATION_MILLIS, recovered.getDurationMillis());
+        assertEquals(timer.getRemainingTimeMillis(), recovered.getRemainingTimeMillis());
+        assertFalse(timer.getId() == recovered.getId());
+    }
+
+    public void testRecoverPausedTimer() {
+        Timer timer = newRecordedTimer();
+
+        timer.start();
+        mNowNanos += TimeUnit.SECONDS.toNanos(10);
+        timer.pause();
+        mNowNanos += TimeUnit.SECONDS.toNanos(20);
+
+        List<Timer> timers = recoverInNewJournal();
+        assertEquals(1, timers.size());
+        Timer recovered = timers.get(0);
+        assertTrue(recovered.isStarted());
+        assertFalse(recovered.isRunning());
+        assertEquals(DURATION_MILLIS - TimeUnit.SECONDS.toMillis(10),
+                recovered.getRemainingTimeMillis());
+    }
+
+    public void testRecoverResetTimer() {
+        Timer timer = newRecordedTimer();
+
+        timer.start();
+        timer.reset();
+        timer.setDurationMillis(DURATION_MILLIS * 2);
+
+        List<Timer> timers = recoverInNewJournal();
+        assertEquals(1, timers.size());
+        assertFalse(timers.get(0).isStarted());
+        assertEquals(DURATION_MILLIS * 2, timers.get(0).getRemainingTimeMillis());
+    }
+
+    public void testStoppedTimerNotRecovered() {
+        Timer stopped = newRecordedTimer();
+        Timer kept = newRecordedTimer();
+
+        stopped.start();
+        kept.start();
+        mJournal.recordStop(stopped.getId());
+
+        assertEquals(1, recoverInNewJournal().size());
+    }
+
+    public void testStoppedTimerTransitionsIgnored() {
+        Timer stopped = newRecordedTimer();
+
+        stopped.start();
+        mJournal.recordStop(stopped.getId());
+        // Still referenced, e.g. by a menu opened before the timer was stopped.
+        stopped.pause();
+        stopped.reset();
+
+        assertTrue(recoverInNewJournal().isEmpty());
+    }
+
+    public void testRecordAfterCloseIgnored() throws InterruptedException {
+        Timer timer = newRecordedTimer();
+
+        closeJournal();
+        timer.start();
+        mJournal.recordStop(timer.getId());
+        mJournal.flush();
+    }
+
+    public void testClockResetDiscardsJournal() {
+        newRecordedTimer().start();
+        mJournal.flush();
+
+        // Rebooting restarts the elapsed realtime clock.
+        mNowNanos = TimeUnit.SECONDS.toNanos(1);
+
+        assertTrue(recoverInNewJournal().isEmpty());
+    }
+
+    public void testRebootDiscardsJournal() {
+        newRecordedTimer().start();
+        mJournal.flush();
+
+        // Rebooted two hours ago, so the recorded start time is earlier than the new elapsed time.
+        mBootTimeMillis += TimeUnit.HOURS.toMillis(3);
+        mNowNanos = TimeUnit.HOURS.toNanos(2);
+
+        assertTrue(recoverInNewJournal().isEmpty());
+    }
+
+    public void testRebootDiscardsSnapshot() {
+        newRecordedTimer().start();
+        recoverInNewJournal();
+
+        mBootTimeMillis += TimeUnit.HOURS.toMillis(3);
+        mNowNanos = TimeUnit.HOURS.toNanos(2);
+
+        assertTrue(recoverInNewJournal().isEmpty());
+    }
+
+    public void testWallClockUpdateKeepsJournal() {
+        newRecordedTimer().start();
+        mJournal.flush();
+
+        mBootTimeMillis -= TimerJournal.BOOT_TIME_TOLERANCE_MILLIS;
+
+        assertEquals(1, recoverInNewJournal().size());
+    }
+
+    public void testFailedJournalWriteKeepsRecords() {
+        Timer timer = newRecordedTimer();
+
+        mWriteFailing = true;
+        timer.start();
+        mJournal.flush();
+        mWriteFailing = false;
+        mNowNanos += TimeUnit.SECONDS.toNanos(10);
+        mJournal.flush();
+
+        List<Timer> timers = recoverInNewJournal();
+        assertEquals(1, timers.size());
+        assertTrue(timers.get(0).isRunning());
+        assertEquals(timer.getRemainingTimeMillis(), timers.get(0).getRemainingTimeMillis());
+    }
+
+    public void testFailedSnapshotKeepsRecords() {
+        Timer timer = newRecordedTimer();
+
+        timer.start();
+        mJournal.flush();
+        mWriteFailing = true;
+        for (int i = 0; i < TimerJournal.SNAPSHOT_THRESHOLD; ++i) {
+            mNowNanos += TimeUnit.MILLISECONDS.toNanos(10);
+            timer.pause();
+            timer.start();
+        }
+        mJournal.flush();
+        mWriteFailing = false;
+        // Written after the journal of the previous generation, which must not be appended to.
+        timer.pause();
+        mJournal.flush();
+
+        List<Timer> timers = recoverInNewJournal();
+        assertEquals(1, timers.size());
+        assertFalse(timers.get(0).isRunning());
+        assertEquals(timer.getRemainingTimeMillis(), timers.get(0).getRemainingTimeMillis());
+    }
+
+    public void testTornRecordIgnored() throws IOException {
+        newRecordedTimer().start();
+        mJournal.flush();
+
+        FileOutputStream out = new FileOutputStream(
+                new File(mDirectory, TimerJournal.JOURNAL_FILE_NAME), true);
+        out.write(new byte[] { TimerJournal.OP_STOP, 0, 0, 0 });
+        out.close();
+
+        assertEquals(1, recoverInNewJournal().size());
+    }
+
+    public void testCompactsIntoSnapshot() {
+        Timer timer = newRecordedTimer();
+
+        for (int i = 0; i < TimerJournal.SNAPSHOT_THRESHOLD; ++i) {
+            timer.start();
+            mNowNanos += TimeUnit.MILLISECONDS.toNanos(10);
+            timer.pause();
+        }
+        mJournal.flush();
+        long journalLength = new File(mDirectory, TimerJournal.JOURNAL_FILE_NAME).length();
+
+        // Only the header is left in the compacted journal.
+        assertTrue(journalLength < 64);
+        List<Timer> timers = recoverInNewJournal();
+        assertEquals(1, timers.size());
+        assertEquals(timer.getRemainingTimeMillis(), timers.get(0).getRemainingTimeMillis());
+    }
+
+    public void testRecoverTwice() {
+        newRecordedTimer().start();
+
+        List<Timer> timers = recoverInNewJournal();
+        mJournal.recordStop(timers.get(0).getId());
+
+        assertTrue(recoverInNewJournal().isEmpty());
+    }
+
+    private TimerJournal newJournal() {
+        mExecutor = Executors.newSingleThreadScheduledExecutor();
+        return new TimerJournal(mDirectory, mExecutor) {
+
+            @Override
+            void writeSnapshot(byte[] snapshotBytes) throws IOException {
+                failIfWriteFailing();
+                super.writeSnapshot(snapshotBytes);
+            }
+
+            @Override
+            void writeJournal(byte[] recordBytes) throws IOException {
+                failIfWriteFailing();
+                super.writeJournal(recordBytes);
+            }
+        };
+    }
+
+    private void failIfWriteFailing() throws IOException {
+        if (mWriteFailing) {
+            throw new IOException("No space left on device");
+        }
+    }
+
+    /** Closes the journal and waits for its files to be written. */
+    private void closeJournal() throws InterruptedException {
+        mJournal.close();
+        assertTrue(mExecutor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    private Timer newRecordedTimer() {
+        Timer timer = new Timer(mClock, DURATION_MILLIS);
+
+        timer.addListener(mJournal.newRecorder(timer));
+        return timer;
+    }
+
+    /** Simulates a process restart by recovering the timers in a new journal. */
+    private List<Timer> recoverInNewJournal() {
+        try {
+            closeJournal();
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        mJournal = newJournal();
+        return mJournal.recover(mClock, mBootTimeMillis);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link TimerRegistry}.
+ */
+public class TimerRegistryTest extends TestCase {
+
+    /** Number of registered timers of the largest registry. */
+    private static final int MANY_TIMERS = 10000;
+
+    private TimerRegistry<String> mRegistry;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mRegistry = new TimerRegistry<String>();
+    }
+
+    public void testTimerIdsAreIncreasing() {
+        Timer timer1 = new Timer();
+        Timer timer2 = new Timer();
+
+        assertTrue(timer1.getId() > 0);
+        assertTrue(timer1.getId() < timer2.getId());
+    }
+
+    public void testPutAndFind() {
+        Timer timer = new Timer();
+
+        assertTrue(mRegistry.isEmpty());
+        mRegistry.put(timer, "value");
+        assertEquals(1, mRegistry.size());
+        assertSame(timer, mRegistry.findTimer(timer.getId()));
+        assertEquals("value", mRegistry.get(timer.getId()));
+        assertNull(mRegistry.findTimer(0));
+        assertNull(mRegistry.get(0));
+    }
+
+    public void testRemove() {
+        Timer timer = new Timer();
+
+        mRegistry.put(timer, "value");
+        assertEquals("value", mRegistry.remove(timer.getId()));
+        assertNull(mRegistry.findTimer(timer.getId()));
+        assertNull(mRegistry.remove(timer.getId()));
+        assertTrue(mRegistry.isEmpty());
+    }
+
+    /** The lookup cost itself is measured by {@code TimerRegistryBenchmark}. */
+    public void testFindTimerAmongManyTimers() {
+        Timer[] timers = new Timer[MANY_TIMERS];
+
+        for (int i = 0; i < MANY_TIMERS; ++i) {
+            timers[i] = new Timer();
+            mRegistry.put(timers[i], "value" + i);
+        }
+        assertEquals(MANY_TIMERS, mRegistry.size());
+        for (int i = 0; i < MANY_TIMERS; ++i) {
+            assertSame(timers[i], mRegistry.findTimer(timers[i].getId()));
+            assertEquals("value" + i, mRegistry.get(timers[i].getId()));
+        }
+        for (int i = 0; i < MANY_TIMERS; i += 2) {
+            assertEquals("value" + i, mRegistry.remove(timers[i].getId()));
+        }
+        assertEquals(MANY_TIMERS / 2, mRegistry.size());
+        for (int i = 0; i < MANY_TIMERS; ++i) {
+            assertEquals(i % 2 == 0 ? null : timers[i], mRegistry.findTimer(timers[i].getId()));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link TimerSimulation}.
+ */
+public class TimerSimulationTest extends TestCase {
+
+    public void testTimersNeverExpireEarlyAndTickOnTheSecond() {
+        TimerSimulation simulation = new TimerSimulation();
+
+        simulation.parseArgument("--timers=200");
+        simulation.parseArgument("--hours=4");
+        simulation.parseArgument("--visible=3");
+        simulation.parseArgument("--seed=7");
+        simulation.run();
+
+        assertTrue(simulation.getExpiredCount() > 0);
+        assertTrue(simulation.getTickCount() > 0);
+        assertEquals(0, simulation.getEarlyExpiryCount());
+        assertEquals(0, simulation.getOffSecondTickCount());
+    }
+
+    public void testSameSeedSameResults() {
+        TimerSimulation first = new TimerSimulation();
+        TimerSimulation second = new TimerSimulation();
+
+        first.parseArgument("--timers=100");
+        second.parseArgument("--timers=100");
+        first.run();
+        second.run();
+
+        assertEquals(first.getExpiredCount(), second.getExpiredCount());
+        assertEquals(first.getTickCount(), second.getTickCount());
+    }
+}
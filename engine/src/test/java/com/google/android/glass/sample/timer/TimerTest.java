@@ -0,0 +1,507 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unit tests for {@link Timer}.
+ */
+public class TimerTest extends TestCase {
+
+    private static final long INITIAL_DURATION_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long INITIAL_ELAPSED_REALTIME = TimeUnit.HOURS.toMillis(1);
+
+    private Timer mTimer;
+    private long mElapsedRealtime;
+    private long mExtraNanos;
+
+    private boolean mOnStartCalled;
+    private boolean mOnPauseCalled;
+    private boolean mOnResetCalled;
+
+    /**
+     * Mock {@link Timer.TimerListener} to verify that callbacks are properly called.
+     */
+    private class MockTimerListener implements Timer.TimerListener {
+
+        @Override
+        public void onStart() {
+            mOnStartCalled = true;
+        }
+
+        @Override
+        public void onPause() {
+            mOnPauseCalled = true;
+        }
+
+        @Override
+        public void onReset() {
+            mOnResetCalled = true;
+        }
+    }
+
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mTimer = new Timer(new Clock() {
+
+            @Override
+            public long nanoTime() {
+                return TimeUnit.MILLISECONDS.toNanos(mElapsedRealtime) + mExtraNanos;
+            }
+        }, INITIAL_DURATION_MILLIS);
+        mTimer.addListener(new MockTimerListener());
+        mElapsedRealtime = INITIAL_ELAPSED_REALTIME;
+        mExtraNanos = 0;
+        mOnStartCalled = false;
+        mOnPauseCalled = false;
+        mOnResetCalled = false;
+    }
+
+    public void testSetDurationMillisCallsListener() {
+        long expectedDurationMillis = TimeUnit.SECONDS.toMillis(5);
+
+        assertEquals(INITIAL_DURATION_MILLIS, mTimer.getDurationMillis());
+        mTimer.setDurationMillis(expectedDurationMillis);
+        assertTrue(mOnResetCalled);
+        assertFalse(mOnStartCalled);
+        assertFalse(mOnPauseCalled);
+        assertEquals(expectedDurationMillis, mTimer.getDurationMillis());
+    }
+
+    public void testIsRunningNotStarted() {
+        assertFalse(mTimer.isRunning());
+        assertListenersNotCalled();
+    }
+
+    public void testIsRunningStartedAndRunning() {
+        mTimer.start();
+        assertTrue(mTimer.isRunning());
+    }
+
+    public void testIsRunningStartedAndPaused() {
+        mTimer.start();
+        mElapsedRealtime += TimeUnit.SECONDS.toMillis(1);
+        mTimer.pause();
+        assertFalse(mTimer.isRunning());
+    }
+
+    public void testIsStartedNotStarted() {
+        assertFalse(mTimer.isStarted());
+        assertListenersNotCalled();
+    }
+
+    public void testIsStartedStartedAndRunning() {
+        mTimer.start();
+        assertTrue(mTimer.isStarted());
+    }
+
+    public void testIsStartedStartedAndPaused() {
+        mTimer.start();
+        mElapsedRealtime += TimeUnit.SECONDS.toMillis(1);
+        mTimer.pause();
+        assertTrue(mTimer.isStarted());
+    }
+
+    public void testGetRemainingTimeMillisNotStarted() {
+        assertEquals(INITIAL_DURATION_MILLIS, mTimer.getRemainingTimeMillis());
+        assertListenersNotCalled();
+    }
+
+    public void testGetRemainingTimeMillisStartedAndRunning() {
+        long elapsedTime = TimeUnit.SECONDS.toMillis(30);
+
+        mTimer.start();
+        mElapsedRealtime += elapsedTime;
+        assertEquals(INITIAL_DURATION_MILLIS - elapsedTime, mTimer.getRemainingTimeMillis());
+    }
+
+    public void testGetRemainingTimeMillisStartedAndRunningNegative() {
+        long elapsedTime = INITIAL_DURATION_MILLIS + TimeUnit.MINUTES.toMillis(30);
+
+        mTimer.start();
+        mElapsedRealtime += elapsedTime;
+        assertEquals(INITIAL_DURATION_MILLIS - elapsedTime, mTimer.getRemainingTimeMillis());
+    }
+
+    public void testGetRemainingTimeMillisStartedAndPaused() {
+        long elapsedTime = TimeUnit.SECONDS.toMillis(30);
+
+        mTimer.start();
+        mElapsedRealtime += elapsedTime;
+        mTimer.pause();
+        mElapsedRealtime += elapsedTime;
+        assertEquals(INITIAL_DURATION_MILLIS - elapsedTime, mTimer.getRemainingTimeMillis());
+    }
+
+    public void testGetRemainingTimeMillisResumedAfterPause() {
+        long elapsedTime = TimeUnit.SECONDS.toMillis(30);
+
+        mTimer.start();
+        mElapsedRealtime += elapsedTime;
+        mTimer.pause();
+        mElapsedRealtime += TimeUnit.MINUTES.toMillis(1);
+        mTimer.start();
+        mElapsedRealtime += elapsedTime;
+        assertEquals(INITIAL_DURATION_MILLIS - 2 * elapsedTime, mTimer.getRemainingTimeMillis());
+    }
+
+    public void testGetRemainingTimeMillisNegativeClockOrigin() {
+        long elapsedTime = TimeUnit.SECONDS.toMillis(30);
+
+        mElapsedRealtime = -TimeUnit.HOURS.toMillis(1);
+        mTimer.start();
+        assertTrue(mTimer.isStarted());
+        mElapsedRealtime += elapsedTime;
+        assertEquals(INITIAL_DURATION_MILLIS - elapsedTime, mTimer.getRemainingTimeMillis());
+    }
+
+    public void testGetDeadlineNanos() {
+        assertEquals(Long.MAX_VALUE, mTimer.getDeadlineNanos());
+        mTimer.start();
+        mElapsedRealtime += TimeUnit.SECONDS.toMillis(30);
+        assertEquals(
+                TimeUnit.MILLISECONDS.toNanos(INITIAL_ELAPSED_REALTIME + INITIAL_DURATION_MILLIS),
+                mTimer.getDeadlineNanos());
+        mTimer.pause();
+        assertEquals(Long.MAX_VALUE, mTimer.getDeadlineNanos());
+    }
+
+    public void testGetMillisToNextSecond() {
+        assertEquals(Long.MAX_VALUE, mTimer.getMillisToNextSecond());
+        mTimer.start();
+        assertEquals(1000, mTimer.getMillisToNextSecond());
+        mElapsedRealtime += 300;
+        assertEquals(700, mTimer.getMillisToNextSecond());
+        // A late caller still lands on the next whole second of the remaining time.
+        mElapsedRealtime += 1150;
+        assertEquals(550, mTimer.getMillisToNextSecond());
+    }
+
+    public void testGetMillisToNextSecondPastDeadline() {
+        mTimer.start();
+        mElapsedRealtime += INITIAL_DURATION_MILLIS + 200;
+        assertEquals(800, mTimer.getMillisToNextSecond());
+        mElapsedRealtime += 800;
+        assertEquals(1000, mTimer.getMillisToNextSecond());
+    }
+
+    public void testGetMillisToNextSecondRoundsUp() {
+        mTimer.start();
+        mElapsedRealtime += 300;
+        mExtraNanos = 1;
+        assertEquals(700, mTimer.getMillisToNextSecond());
+    }
+
+    public void testGetSnapshot() {
+        long elapsedTime = TimeUnit.SECONDS.toMillis(30);
+        TimerSnapshot snapshot = mTimer.getSnapshot();
+
+        assertEquals(mTimer.getId(), snapshot.getId());
+        assertEquals(INITIAL_DURATION_MILLIS, snapshot.getDurationMillis());
+        assertEquals(INITIAL_DURATION_MILLIS, snapshot.getRemainingTimeMillis());
+        assertFalse(snapshot.isStarted());
+        assertFalse(snapshot.isRunning());
+        assertFalse(snapshot.isPaused());
+
+        mTimer.start();
+        mElapsedRealtime += elapsedTime;
+        snapshot = mTimer.getSnapshot();
+        assertTrue(snapshot.isStarted());
+        assertTrue(snapshot.isRunning());
+        assertEquals(INITIAL_DURATION_MILLIS - elapsedTime, snapshot.getRemainingTimeMillis());
+
+        mTimer.pause();
+        // The snapshot no longer follows the timer.
+        assertTrue(snapshot.isRunning());
+        snapshot = mTimer.getSnapshot();
+        assertTrue(snapshot.isPaused());
+        mElapsedRealtime += elapsedTime;
+        assertEquals(INITIAL_DURATION_MILLIS - elapsedTime, snapshot.getRemainingTimeMillis());
+    }
+
+    public void testRestoredIdKeptIfUnassigned() {
+        long id = mTimer.getId() + 10;
+        Timer restored = new Timer(Clock.SYSTEM, INITIAL_DURATION_MILLIS, id);
+
+        assertEquals(id, restored.getId());
+        assertTrue(new Timer().getId() > id);
+    }
+
+    public void testRestoredIdReassignedIfAssigned() {
+        Timer restored = new Timer(Clock.SYSTEM, INITIAL_DURATION_MILLIS, mTimer.getId());
+
+        assertTrue(restored.getId() > mTimer.getId());
+    }
+
+    public void testPauseTwiceKeepsFirstPauseTime() {
+        long elapsedTime = TimeUnit.SECONDS.toMillis(30);
+
+        mTimer.start();
+        mElapsedRealtime += elapsedTime;
+        mTimer.pause();
+        mElapsedRealtime += elapsedTime;
+        mTimer.pause();
+        assertEquals(INITIAL_DURATION_MILLIS - elapsedTime, mTimer.getRemainingTimeMillis());
+    }
+
+    public void testStartCallsListener() {
+        mTimer.start();
+        assertTrue(mTimer.isStarted());
+        assertTrue(mTimer.isRunning());
+        assertTrue(mOnStartCalled);
+        assertFalse(mOnResetCalled);
+        assertFalse(mOnPauseCalled);
+    }
+
+    public void testPauseCallsListener() {
+        mTimer.start();
+        mOnStartCalled = false;
+        mElapsedRealtime += TimeUnit.SECONDS.toMillis(5);
+        mTimer.pause();
+        assertTrue(mTimer.isStarted());
+        assertFalse(mTimer.isRunning());
+        assertTrue(mOnPauseCalled);
+        assertFalse(mOnStartCalled);
+        assertFalse(mOnResetCalled);
+    }
+
+    public void testResetCallsListener() {
+        mTimer.start();
+        mOnStartCalled = false;
+        mElapsedRealtime += TimeUnit.SECONDS.toMillis(5);
+        assertTrue(mTimer.isStarted());
+        assertTrue(mTimer.isRunning());
+        mTimer.reset();
+        assertFalse(mTimer.isStarted());
+        assertFalse(mTimer.isRunning());
+        assertTrue(mOnResetCalled);
+        assertTrue(mOnPauseCalled);
+        assertFalse(mOnStartCalled);
+    }
+
+    public void testAllListenersNotifiedInOrder() {
+        StringBuilder calls = new StringBuilder();
+
+        mTimer.addListener(new RecordingTimerListener(calls, "a"));
+        mTimer.addListener(new RecordingTimerListener(calls, "b"));
+        mTimer.start();
+        mTimer.reset();
+        assertTrue(mOnStartCalled);
+        assertEquals("a.start b.start a.pause b.pause a.reset b.reset ", calls.toString());
+    }
+
+    public void testRemoveListener() {
+        StringBuilder calls = new StringBuilder();
+        Timer.TimerListener listener = new RecordingTimerListener(calls, "a");
+
+        mTimer.addListener(listener);
+        assertTrue(mTimer.removeListener(listener));
+        assertFalse(mTimer.removeListener(listener));
+        mTimer.start();
+        assertEquals("", calls.toString());
+        assertTrue(mOnStartCalled);
+    }
+
+    public void testListenerRemovedDuringDispatch() {
+        final StringBuilder calls = new StringBuilder();
+        final Timer.TimerListener second = new RecordingTimerListener(calls, "b");
+
+        mTimer.addListener(new RecordingTimerListener(calls, "a") {
+
+            @Override
+            public void onStart() {
+                super.onStart();
+                mTimer.removeListener(second);
+            }
+        });
+        mTimer.addListener(second);
+
+        // The listeners of the ongoing notification are a snapshot.
+        mTimer.start();
+        mTimer.start();
+        assertEquals("a.start b.start a.start ", calls.toString());
+    }
+
+    public void testConcurrentStartPauseKeepsElapsedTimeConsistent() throws Exception {
+        final Timer timer = new Timer(Clock.SYSTEM, INITIAL_DURATION_MILLIS);
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final long startNanos = System.nanoTime();
+        Thread reader = new Thread() {
+
+            @Override
+            public void run() {
+                while (!isInterrupted() && failure.get() == null) {
+                    long remainingTime = timer.getRemainingTimeMillis();
+                    long maxElapsedTime =
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + 1;
+                    long elapsedTime = INITIAL_DURATION_MILLIS - remainingTime;
+
+                    // Never negative nor longer than the time spent since the first start.
+                    if (elapsedTime < 0 || elapsedTime > maxElapsedTime) {
+                        failure.set("Elapsed time out of bounds: " + elapsedTime);
+                    }
+                }
+            }
+        };
+
+        reader.start();
+        runConcurrently(new Transitions() {
+
+            @Override
+            public void run(Timer timer, Random random) {
+                if (random.nextBoolean()) {
+                    timer.start();
+                } else {
+                    timer.pause();
+                }
+            }
+        }, timer);
+        reader.interrupt();
+        reader.join();
+        assertNull(failure.get(), failure.get());
+    }
+
+    public void testConcurrentTransitionsNeverTearState() throws Exception {
+        final Timer timer = new Timer(Clock.SYSTEM, INITIAL_DURATION_MILLIS);
+
+        timer.addListener(new Timer.TimerListener() {
+
+            @Override
+            public void onStart() {
+                assertTrue(timer.getRemainingTimeMillis() <= timer.getDurationMillis());
+            }
+
+            @Override
+            public void onPause() {
+                assertTrue(timer.getRemainingTimeMillis() <= timer.getDurationMillis());
+            }
+
+            @Override
+            public void onReset() {
+            }
+        });
+        runConcurrently(new Transitions() {
+
+            @Override
+            public void run(Timer timer, Random random) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        timer.start();
+                        break;
+                    case 1:
+                        timer.pause();
+                        break;
+                    case 2:
+                        timer.reset();
+                        break;
+                    default:
+                        assertTrue(timer.getRemainingTimeMillis() <= INITIAL_DURATION_MILLIS);
+                        break;
+                }
+            }
+        }, timer);
+
+        timer.reset();
+        assertFalse(timer.isStarted());
+        assertFalse(timer.isRunning());
+        assertEquals(INITIAL_DURATION_MILLIS, timer.getRemainingTimeMillis());
+    }
+
+    /** Random transition applied by the stress tests. */
+    private interface Transitions {
+        void run(Timer timer, Random random);
+    }
+
+    /** Applies random transitions to {@code timer} from several threads at once. */
+    private static void runConcurrently(final Transitions transitions, final Timer timer)
+            throws Exception {
+        final int threadCount = 8;
+        final int iterations = 20000;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[threadCount];
+
+        for (int i = 0; i < threadCount; ++i) {
+            final long seed = i;
+
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+                    Random random = new Random(seed);
+
+                    try {
+                        startLatch.await();
+                        for (int j = 0; j < iterations; ++j) {
+                            transitions.run(timer, random);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    /** {@link Timer.TimerListener} appending its notifications to a {@link StringBuilder}. */
+    private static class RecordingTimerListener implements Timer.TimerListener {
+        private final StringBuilder mCalls;
+        private final String mName;
+
+        RecordingTimerListener(StringBuilder calls, String name) {
+            mCalls = calls;
+            mName = name;
+        }
+
+        @Override
+        public void onStart() {
+            mCalls.append(mName).append(".start ");
+        }
+
+        @Override
+        public void onPause() {
+            mCalls.append(mName).append(".pause ");
+        }
+
+        @Override
+        public void onReset() {
+            mCalls.append(mName).append(".reset ");
+        }
+    }
+
+    private void assertListenersNotCalled() {
+        assertFalse(mOnStartCalled);
+        assertFalse(mOnPauseCalled);
+        assertFalse(mOnResetCalled);
+    }
+}
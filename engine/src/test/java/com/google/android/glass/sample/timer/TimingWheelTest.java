@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.glass.sample.timer;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link TimingWheel}.
+ */
+public class TimingWheelTest extends TestCase {
+
+    private static final long TICK_MILLIS = 10;
+    private static final long INITIAL_TIME_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private TimingWheel<Long> mWheel;
+    private final List<Long> mExpired = new ArrayList<Long>();
+    private final TimingWheel.ExpiryHandler<Long> mHandler =
+            new TimingWheel.ExpiryHandler<Long>() {
+
+        @Override
+        public void onExpired(Long deadlineMillis) {
+            mExpired.add(deadlineMillis);
+        }
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mWheel = new TimingWheel<Long>(TICK_MILLIS, INITIAL_TIME_MILLIS);
+        mExpired.clear();
+    }
+
+    public void testEmpty() {
+        assertTrue(mWheel.isEmpty());
+        assertEquals(Long.MAX_VALUE, mWheel.getNextDeadlineMillis());
+        assertEquals(0, mWheel.advanceTo(Long.MAX_VALUE, mHandler));
+    }
+
+    public void testExpiresAtDeadline() {
+        schedule(INITIAL_TIME_MILLIS + 1000);
+
+        assertEquals(0, mWheel.advanceTo(INITIAL_TIME_MILLIS + 999, mHandler));
+        assertEquals(1, mWheel.size());
+        assertEquals(1, mWheel.advanceTo(INITIAL_TIME_MILLIS + 1000, mHandler));
+        assertTrue(mWheel.isEmpty());
+    }
+
+    public void testNeverExpiresEarly() {
+        // Rounded up to the next tick.
+        schedule(INITIAL_TIME_MILLIS + 1001);
+
+        assertEquals(0, mWheel.advanceTo(INITIAL_TIME_MILLIS + 1009, mHandler));
+        assertEquals(1, mWheel.advanceTo(INITIAL_TIME_MILLIS + 1010, mHandler));
+    }
+
+    public void testPastDeadlineExpiresOnNextAdvance() {
+        mWheel.advanceTo(INITIAL_TIME_MILLIS + 1000, mHandler);
+        schedule(INITIAL_TIME_MILLIS);
+        schedule(0);
+
+        assertEquals(INITIAL_TIME_MILLIS + 1000, mWheel.getNextDeadlineMillis());
+        assertEquals(2, mWheel.advanceTo(INITIAL_TIME_MILLIS + 1000, mHandler));
+    }
+
+    public void testCancel() {
+        TimingWheel.Entry<Long> entry = schedule(INITIAL_TIME_MILLIS + 1000);
+
+        assertTrue(entry.isScheduled());
+        assertTrue(mWheel.cancel(entry));
+        assertFalse(entry.isScheduled());
+        assertFalse(mWheel.cancel(entry));
+        assertEquals(Long.MAX_VALUE, mWheel.getNextDeadlineMillis());
+        assertEquals(0, mWheel.advanceTo(INITIAL_TIME_MILLIS + 2000, mHandler));
+    }
+
+    public void testExpiresInDeadlineOrder() {
+        schedule(INITIAL_TIME_MILLIS + TimeUnit.HOURS.toMillis(30));
+        schedule(INITIAL_TIME_MILLIS + TimeUnit.SECONDS.toMillis(5));
+        schedule(INITIAL_TIME_MILLIS + TimeUnit.MINUTES.toMillis(5));
+        schedule(INITIAL_TIME_MILLIS + 20);
+
+        assertEquals(4, mWheel.advanceTo(
+                INITIAL_TIME_MILLIS + TimeUnit.DAYS.toMillis(2), mHandler));
+        assertSorted();
+    }
+
+    public void testNextDeadlineNoLaterThanEarliestDeadline() {
+        long deadlineMillis = INITIAL_TIME_MILLIS + TimeUnit.MINUTES.toMillis(7);
+
+        schedule(deadlineMillis);
+        while (!mWheel.isEmpty()) {
+            long nextDeadlineMillis = mWheel.getNextDeadlineMillis();
+
+            assertTrue(nextDeadlineMillis <= deadlineMillis);
+            mWheel.advanceTo(nextDeadlineMillis, mHandler);
+        }
+        assertEquals(1, mExpired.size());
+    }
+
+    public void testHandlerCanScheduleAndCancel() {
+        final TimingWheel.Entry<Long> cancelled = schedule(INITIAL_TIME_MILLIS + 100);
+        mWheel.schedule(INITIAL_TIME_MILLIS + 100, INITIAL_TIME_MILLIS + 100);
+
+        int expiredCount = mWheel.advanceTo(INITIAL_TIME_MILLIS + 100,
+                new TimingWheel.ExpiryHandler<Long>() {
+
+            @Override
+            public void onExpired(Long deadlineMillis) {
+                mExpired.add(deadlineMillis);
+                mWheel.cancel(cancelled);
+                mWheel.schedule(deadlineMillis + 50, deadlineMillis + 50);
+            }
+        });
+
+        assertEquals(1, expiredCount);
+        assertEquals(1, mWheel.size());
+        assertEquals(1, mWheel.advanceTo(INITIAL_TIME_MILLIS + 150, mHandler));
+    }
+
+    public void testRandomScheduleMatchesReference() {
+        Random random = new Random(42);
+        List<TimingWheel.Entry<Long>> entries = new ArrayList<TimingWheel.Entry<Long>>();
+        long nowMillis = INITIAL_TIME_MILLIS;
+        int cancelledCount = 0;
+
+        for (int i = 0; i < 5000; ++i) {
+            // Deadlines spread from milliseconds to days.
+            long delayMillis = (long) Math.pow(10, random.nextDouble() * 9);
+
+            entries.add(schedule(nowMillis + delayMillis));
+            if (random.nextInt(4) == 0) {
+                TimingWheel.Entry<Long> entry = entries.get(random.nextInt(entries.size()));
+
+                if (mWheel.cancel(entry)) {
+                    ++cancelledCount;
+                }
+            }
+            if (random.nextInt(10) == 0) {
+                nowMillis += (long) Math.pow(10, random.nextDouble() * 7);
+                int previousSize = mExpired.size();
+
+                mWheel.advanceTo(nowMillis, mHandler);
+                for (int j = previousSize; j < mExpired.size(); ++j) {
+                    assertTrue(mExpired.get(j) <= nowMillis);
+                }
+            }
+        }
+        for (TimingWheel.Entry<Long> entry : entries) {
+            if (entry.isScheduled()) {
+                // Not expired yet, with a tick of rounding.
+                assertTrue(entry.getValue() > nowMillis - TICK_MILLIS);
+            }
+        }
+        mExpired.clear();
+        mWheel.advanceTo(Long.MAX_VALUE, mHandler);
+        assertSorted();
+        assertTrue(mWheel.isEmpty());
+        assertEquals(Long.MAX_VALUE, mWheel.getNextDeadlineMillis());
+        assertTrue(cancelledCount > 0);
+    }
+
+    private TimingWheel.Entry<Long> schedule(long deadlineMillis) {
+        return mWheel.schedule(deadlineMillis, deadlineMillis);
+    }
+
+    /** Asserts that the expired deadlines are in order, at the resolution of a tick. */
+    private void assertSorted() {
+        for (int i = 1; i < mExpired.size(); ++i) {
+            long previousTick = (mExpired.get(i - 1) - INITIAL_TIME_MILLIS + TICK_MILLIS - 1)
+                    / TICK_MILLIS;
+            long tick = (mExpired.get(i) - INITIAL_TIME_MILLIS + TICK_MILLIS - 1) / TICK_MILLIS;
+
+            assertTrue(previousTick <= tick);
+        }
+    }
+}